@@ -2,8 +2,10 @@ package com.dailycodework.excel2database;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class Excel2DatabaseApplication {
 
     public static void main(String[] args) {
@@ -23,6 +23,8 @@ public class SecurityConfig {
             .csrf().disable()
             .authorizeRequests()
                 .antMatchers("/css/**", "/js/**", "/images/**").permitAll()
+                // Schema changes and database-wide rebuilds: only signed-in teachers
+                .antMatchers("/api/maintenance/**").hasRole("TEACHER")
                 .antMatchers("/", "/login", "/signup", "/teacher/login", "/teacher/signup", "/teacher/send-otp", "/teacher/reset-password", "/teacher/send-reset-link", "/teacher-dashboard", "/search-students", "/student-search", "/api/**", "/fixed/**", "/enhanced-search/**", "/excel/**", "/subjects/**", "/forgot-password", "/reset-password", "/get-reset-link").permitAll()
                 .anyRequest().authenticated()
             .and()
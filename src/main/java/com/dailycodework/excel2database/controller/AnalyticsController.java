@@ -0,0 +1,44 @@
+package com.dailycodework.excel2database.controller;
+
+import com.dailycodework.excel2database.service.GradeAnalyticsService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ✅ Subject-level analytics for the teacher dashboard
+ */
+@Controller
+@RequestMapping("/api/analytics")
+@RequiredArgsConstructor
+@Slf4j
+public class AnalyticsController {
+
+    private final GradeAnalyticsService gradeAnalyticsService;
+
+    /**
+     * ✅ Grade histogram, pass rate and average internals of each subject. college is optional.
+     */
+    @GetMapping("/grade-distribution")
+    @ResponseBody
+    public Map<String, Object> getGradeDistribution(@RequestParam String dept,
+                                                    @RequestParam String semester,
+                                                    @RequestParam(required = false) String college) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("dept", dept);
+        response.put("semester", semester);
+        try {
+            response.put("subjects", gradeAnalyticsService.getDistribution(college, dept, semester));
+        } catch (Exception e) {
+            log.error("❌ Error building grade distribution for {} {}: {}", dept, semester, e.getMessage(), e);
+            response.put("subjects", List.of());
+            response.put("error", "Could not load grade distribution");
+        }
+        return response;
+    }
+}
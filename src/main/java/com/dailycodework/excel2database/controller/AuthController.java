@@ -131,6 +131,11 @@ public class AuthController {
     }
 
     private String findDeptForHtno(String htno, String college) {
+        String directoryDept = studentService.findDepartmentForHtno(htno, college);
+        if (directoryDept != null) {
+            return directoryDept;
+        }
+
         // Check all common departments
         for (String dept : List.of("CSE", "CSD", "CSM", "ECE", "EEE", "MECH", "IT", "CIVIL", "CS")) {
             if (subjectService.isHtnoPresentInAnySemester(dept, htno, college)) {
@@ -0,0 +1,98 @@
+package com.dailycodework.excel2database.controller;
+
+import com.dailycodework.excel2database.service.BacklogIndex;
+import com.dailycodework.excel2database.service.StudentService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ✅ Outstanding F/AB/MP subjects per student, per subject and per cohort, served from {@link BacklogIndex}
+ */
+@Controller
+@RequestMapping("/api/backlogs")
+@RequiredArgsConstructor
+@Slf4j
+public class BacklogController {
+
+    private final BacklogIndex backlogIndex;
+    private final StudentService studentService;
+
+    /**
+     * ✅ Subjects a student still has to clear
+     */
+    @GetMapping("/student")
+    @ResponseBody
+    public Map<String, Object> getStudentBacklogs(@RequestParam String htno,
+                                                  @RequestParam String dept) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            String college = studentService.detectCollegeForHtno(htno);
+            if (college == null) {
+                log.error("❌ College not found for HTNO: {}", htno);
+                response.put("error", "Student not found");
+                return response;
+            }
+            List<BacklogIndex.Backlog> backlogs = backlogIndex.forStudent(college, dept, htno);
+            response.put("htno", htno);
+            response.put("count", backlogs.size());
+            response.put("backlogs", backlogs);
+        } catch (IllegalArgumentException e) {
+            response.put("error", e.getMessage());
+        } catch (Exception e) {
+            log.error("❌ Error getting backlogs for HTNO {}: {}", htno, e.getMessage(), e);
+            response.put("error", "An error occurred while retrieving backlogs");
+        }
+        return response;
+    }
+
+    /**
+     * ✅ Students who still have to clear a subject
+     */
+    @GetMapping("/subject")
+    @ResponseBody
+    public Map<String, Object> getSubjectBacklogs(@RequestParam String college,
+                                                  @RequestParam String dept,
+                                                  @RequestParam String subcode) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            List<String> students = backlogIndex.forSubject(college, dept, subcode);
+            response.put("subcode", subcode);
+            response.put("count", students.size());
+            response.put("students", students);
+        } catch (IllegalArgumentException e) {
+            response.put("error", e.getMessage());
+        } catch (Exception e) {
+            log.error("❌ Error getting backlogs for subject {}: {}", subcode, e.getMessage(), e);
+            response.put("error", "An error occurred while retrieving backlogs");
+        }
+        return response;
+    }
+
+    /**
+     * ✅ Backlog summary of a department, optionally for one batch (roll number prefix)
+     */
+    @GetMapping("/cohort")
+    @ResponseBody
+    public Map<String, Object> getCohortBacklogs(@RequestParam String college,
+                                                 @RequestParam String dept,
+                                                 @RequestParam(required = false) String batch) {
+        try {
+            return backlogIndex.forCohort(college, dept, batch);
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("error", e.getMessage());
+            return response;
+        } catch (Exception e) {
+            log.error("❌ Error getting backlogs for {} {}: {}", college, dept, e.getMessage(), e);
+            Map<String, Object> response = new HashMap<>();
+            response.put("error", "An error occurred while retrieving backlogs");
+            return response;
+        }
+    }
+}
@@ -1,17 +1,26 @@
 package com.dailycodework.excel2database.controller;
 
 import com.dailycodework.excel2database.domain.Subject;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.dailycodework.excel2database.service.CollegeFanOut;
 import com.dailycodework.excel2database.service.DynamicDatabaseService;
+import com.dailycodework.excel2database.service.SubjectSearchIndex;
+import com.dailycodework.excel2database.service.TableCatalog;
+import com.dailycodework.excel2database.util.GradeUtil;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.math.BigDecimal;
-import java.math.RoundingMode;
-
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -21,6 +30,12 @@ import java.util.stream.Collectors;
 public class EnhancedSearchController {
 
     private final DynamicDatabaseService dbService;
+    private final TableCatalog tableCatalog;
+    private final SubjectSearchIndex subjectSearchIndex;
+    private final CollegeFanOut collegeFanOut;
+    private final ObjectMapper objectMapper;
+
+    private static final int MAX_PAGE_SIZE = 1000;
 
     @GetMapping("/enhanced-search")
     public String showSearchPage(Model model) {
@@ -118,115 +133,81 @@ public class EnhancedSearchController {
         List<String> colleges = dbService.getAllDatabases();
         JdbcTemplate jdbc = dbService.getJdbcTemplateForCollege(null);
 
-        // Try all colleges
-        for (String college : colleges) {
+        // Ask all colleges at once; the first one holding the student's results wins
+        Map.Entry<String, List<Subject>> found;
+        try {
+            found = collegeFanOut.first("Roll number search for " + htno, colleges,
+                    college -> findSubjects(jdbc, college, baseTableName, htno));
+        } catch (CollegeFanOut.FanOutTimeoutException e) {
+            // Not the same as no results: the student may be in a college that didn't answer in time
+            response.put("error", "The search took too long, please try again");
+            return response;
+        }
 
-            try {
-                // Create the full table name with college prefix
-                String tableName = college.toLowerCase() + "_" + baseTableName;
-                String sanitizedTable = dbService.sanitizeTableName(tableName);
-
-                // Check if the table exists
-                List<String> tables = jdbc.queryForList("SHOW TABLES LIKE ?", String.class, tableName);
-                if (tables.isEmpty()) {
-                    log.info("Table {} does not exist in database, skipping", tableName);
-                    continue;
-                }
+        if (found != null) {
+            String college = found.getKey();
+            List<Subject> subjects = found.getValue();
+            response.put("subjects", subjects);
 
-                // Table exists, check if student exists in this table
-                Integer count = jdbc.queryForObject("SELECT COUNT(*) FROM " + sanitizedTable + " WHERE htno = ?", Integer.class, htno);
+            // STEP 1: Calculate SGPA from current semester subjects
+            calculateAndAddSgpa(subjects, response);
+            log.info("Calculated SGPA for current semester: {}", response.get("sgpa"));
 
-                if (count == null || count == 0) {
-                    log.info("No records found for htno: {} in table: {} for college: {}", htno, tableName, college);
-                    continue;
-                }
-
-                // Student exists in this table, get their subjects
-                log.info("Found {} records for htno: {} in table: {} for college: {}", count, htno, tableName, college);
+            // STEP 2: CGPA from the stored running totals, or from all semesters if none
+            calculateAndAddCgpa(jdbc, htno, dept, college, response);
+            log.info("Calculated CGPA from all semesters: {}", response.get("cgpa"));
 
-                List<Subject> subjects = jdbc.query(
-                    "SELECT * FROM " + sanitizedTable + " WHERE htno = ?",
-                    (rs, rowNum) -> {
-                        Subject s = new Subject();
-                        s.setSno(rs.getInt("sno"));
-                        s.setHtno(rs.getString("htno"));
-                        s.setSubcode(rs.getString("subcode"));
-                        s.setSubname(rs.getString("subname"));
-                        s.setInternals(rs.getInt("internals"));
-                        s.setGrade(rs.getString("grade"));
-                        s.setCredit(rs.getDouble("credit"));
-                        return s;
-                    },
-                    htno
-                );
+            // STEP 3: Try to get official SGPA and CGPA from database (if available)
+            try {
+                String baseGradesTable = "grades_" + dept.toLowerCase();
+                String gradesTable = college.toLowerCase() + "_" + baseGradesTable;
+                String sanitizedGradesTable = dbService.sanitizeTableName(gradesTable);
+                String semesterColumn = "sem_" + semester.replace("-", "_");
 
-                if (!subjects.isEmpty()) {
-                    response.put("subjects", subjects);
+                // Check if grades table exists
+                if (tableCatalog.tableExists(gradesTable)) {
+                    try {
+                        String query = "SELECT " + semesterColumn + ", cgpa FROM " + sanitizedGradesTable + " WHERE htno = ?";
+                        Map<String, Object> gradesResult = jdbc.queryForMap(query, htno);
 
-                    // STEP 1: Calculate SGPA from current semester subjects
-                    calculateAndAddSgpa(subjects, response);
-                    log.info("Calculated SGPA for current semester: {}", response.get("sgpa"));
+                        Double sgpa = (Double) gradesResult.get(semesterColumn);
+                        Double cgpa = (Double) gradesResult.get("cgpa");
 
-                    // STEP 2: Calculate CGPA from all semesters
-                    calculateAndAddCgpa(jdbc, htno, dept, response);
-                    log.info("Calculated CGPA from all semesters: {}", response.get("cgpa"));
+                        // Override calculated values with database values if available
+                        if (sgpa != null) {
+                            response.put("sgpa", sgpa);
+                            log.info("Using database SGPA: {}", sgpa);
+                        }
 
-                    // STEP 3: Try to get official SGPA and CGPA from database (if available)
-                    try {
-                        String baseGradesTable = "grades_" + dept.toLowerCase();
-                        String gradesTable = college.toLowerCase() + "_" + baseGradesTable;
-                        String sanitizedGradesTable = dbService.sanitizeTableName(gradesTable);
-                        String semesterColumn = "sem_" + semester.replace("-", "_");
-
-                        // Check if grades table exists
-                        List<String> gradesTables = jdbc.queryForList("SHOW TABLES LIKE ?", String.class, gradesTable);
-                        if (!gradesTables.isEmpty()) {
-                            try {
-                                String query = "SELECT " + semesterColumn + ", cgpa FROM " + sanitizedGradesTable + " WHERE htno = ?";
-                                Map<String, Object> gradesResult = jdbc.queryForMap(query, htno);
-
-                                Double sgpa = (Double) gradesResult.get(semesterColumn);
-                                Double cgpa = (Double) gradesResult.get("cgpa");
-
-                                // Override calculated values with database values if available
-                                if (sgpa != null) {
-                                    response.put("sgpa", sgpa);
-                                    log.info("Using database SGPA: {}", sgpa);
-                                }
-
-                                if (cgpa != null) {
-                                    response.put("cgpa", cgpa);
-                                    log.info("Using database CGPA: {}", cgpa);
-                                }
-                            } catch (Exception e) {
-                                log.warn("Error getting SGPA/CGPA from database: {}", e.getMessage());
-                                // We already calculated SGPA and CGPA above, so no need to recalculate
-                            }
+                        if (cgpa != null) {
+                            response.put("cgpa", cgpa);
+                            log.info("Using database CGPA: {}", cgpa);
                         }
                     } catch (Exception e) {
-                        log.error("Error accessing SGPA/CGPA tables: {}", e.getMessage());
+                        log.warn("Error getting SGPA/CGPA from database: {}", e.getMessage());
                         // We already calculated SGPA and CGPA above, so no need to recalculate
                     }
-
-                    // Final check to ensure both SGPA and CGPA are in the response
-                    if (!response.containsKey("sgpa")) {
-                        response.put("sgpa", 0.0);
-                        log.warn("SGPA still missing, setting default to 0.0 for htno: {}", htno);
-                    }
-                    if (!response.containsKey("cgpa")) {
-                        response.put("cgpa", 0.0);
-                        log.warn("CGPA still missing, setting default to 0.0 for htno: {}", htno);
-                    }
-
-                    // Log the final values for debugging
-                    log.info("Final SGPA: {}, CGPA: {} for htno: {}",
-                            response.get("sgpa"), response.get("cgpa"), htno);
-
-                    return response; // Return as soon as we find results
                 }
             } catch (Exception e) {
-                log.error("Error checking college {}: {}", college, e.getMessage());
+                log.error("Error accessing SGPA/CGPA tables: {}", e.getMessage());
+                // We already calculated SGPA and CGPA above, so no need to recalculate
+            }
+
+            // Final check to ensure both SGPA and CGPA are in the response
+            if (!response.containsKey("sgpa")) {
+                response.put("sgpa", 0.0);
+                log.warn("SGPA still missing, setting default to 0.0 for htno: {}", htno);
+            }
+            if (!response.containsKey("cgpa")) {
+                response.put("cgpa", 0.0);
+                log.warn("CGPA still missing, setting default to 0.0 for htno: {}", htno);
             }
+
+            // Log the final values for debugging
+            log.info("Final SGPA: {}, CGPA: {} for htno: {}",
+                    response.get("sgpa"), response.get("cgpa"), htno);
+
+            return response;
         }
 
         // If we get here, no results were found
@@ -234,98 +215,118 @@ public class EnhancedSearchController {
         return response;
     }
 
-    private double convertGradeToPoint(String grade) {
-        if (grade == null) return -1;
-        return switch (grade.trim().toUpperCase()) {
-            case "A+" -> 10.0; case "A" -> 9.0;
-            case "B" -> 8.0;
-            case "C" -> 7.0;
-            case "D" -> 6.0;
-            case "E" -> 5.0;
-            case "F" -> 0.0;
-            case "MP" -> 0.0; // Malpractice counts as 0
-            case "AB" -> 0.0; // Absent counts as 0
-            default -> -1;
-        };
+    /**
+     * A student's subjects in one college's results table, paired with the college, or null if there are none.
+     */
+    private Map.Entry<String, List<Subject>> findSubjects(JdbcTemplate jdbc, String college, String baseTableName, String htno) {
+        String tableName = college.toLowerCase() + "_" + baseTableName;
+        if (!tableCatalog.tableExists(tableName)) {
+            log.debug("Table {} does not exist in database, skipping", tableName);
+            return null;
+        }
+
+        List<Subject> subjects = jdbc.query(
+            "SELECT * FROM " + dbService.sanitizeTableName(tableName) + " WHERE htno = ?",
+            (rs, rowNum) -> {
+                Subject s = new Subject();
+                s.setSno(rs.getInt("sno"));
+                s.setHtno(rs.getString("htno"));
+                s.setSubcode(rs.getString("subcode"));
+                s.setSubname(rs.getString("subname"));
+                s.setInternals(rs.getInt("internals"));
+                s.setGrade(rs.getString("grade"));
+                s.setCredit(rs.getDouble("credit"));
+                return s;
+            },
+            htno
+        );
+        if (subjects.isEmpty()) {
+            log.debug("No records found for htno: {} in table: {} for college: {}", htno, tableName, college);
+            return null;
+        }
+        log.info("Found {} records for htno: {} in table: {} for college: {}", subjects.size(), htno, tableName, college);
+        return Map.entry(college, subjects);
     }
 
     private void calculateAndAddSgpa(List<Subject> subjects, Map<String, Object> response) {
-        double totalPoints = 0;
-        double totalCredits = 0;
-
+        double[] total = new double[2];
         for (Subject subject : subjects) {
-            double gp = convertGradeToPoint(subject.getGrade());
-            if (gp >= 0 && subject.getCredit() != null && subject.getCredit() > 0) {
-                totalPoints += gp * subject.getCredit();
-                totalCredits += subject.getCredit();
-            }
+            GradeUtil.accumulate(total, subject);
         }
 
-        if (totalCredits > 0) {
-            double sgpa = BigDecimal.valueOf(totalPoints / totalCredits)
-                    .setScale(2, RoundingMode.HALF_UP).doubleValue();
+        if (total[1] > 0) {
+            double sgpa = GradeUtil.gpa(total);
             response.put("sgpa", sgpa);
             log.info("Calculated SGPA on the fly: {}", sgpa);
         }
     }
 
-    private void calculateAndAddCgpa(JdbcTemplate jdbc, String htno, String dept, Map<String, Object> response) {
+    /**
+     * Credit-weighted CGPA kept in the grades table's running totals, or null if none are stored yet.
+     */
+    private Double readStoredCgpa(JdbcTemplate jdbc, String htno, String dept, String college) {
+        String gradesTable = college.toLowerCase() + "_grades_" + dept.toLowerCase();
+        if (!tableCatalog.tableExists(gradesTable)) {
+            return null;
+        }
         try {
-            log.info("Calculating CGPA for htno: {} in department: {}", htno, dept);
-
-            // Get all semester results for this student
-            List<Subject> allSubjects = new ArrayList<>();
-
-            // Get list of all results tables for this department across all colleges
-            List<String> colleges = dbService.getAllDatabases();
-            List<String> resultsTables = new ArrayList<>();
+            List<Map<String, Object>> rows = jdbc.queryForList("SELECT total_credits, cgpa FROM " +
+                    dbService.sanitizeTableName(gradesTable) + " WHERE htno = ?", htno);
+            if (rows.isEmpty()) {
+                return null;
+            }
+            Number credits = (Number) rows.get(0).get("total_credits");
+            Number cgpa = (Number) rows.get(0).get("cgpa");
+            return credits != null && credits.doubleValue() > 0 && cgpa != null ? cgpa.doubleValue() : null;
+        } catch (Exception e) {
+            // Grades tables created before the totals existed get them on the next upload or rebuild
+            log.debug("No running totals in {}: {}", gradesTable, e.getMessage());
+            return null;
+        }
+    }
 
-            for (String college : colleges) {
-                String tablePattern = college.toLowerCase() + "_results_" + dept.toLowerCase() + "_%";
-                List<String> collegeTables = jdbc.queryForList("SHOW TABLES LIKE ?", String.class, tablePattern);
-                resultsTables.addAll(collegeTables);
+    private void calculateAndAddCgpa(JdbcTemplate jdbc, String htno, String dept, String college, Map<String, Object> response) {
+        try {
+            Double storedCgpa = readStoredCgpa(jdbc, htno, dept, college);
+            if (storedCgpa != null) {
+                response.put("cgpa", storedCgpa);
+                log.info("Using stored CGPA: {} for htno: {}", storedCgpa, htno);
+                return;
             }
+            log.info("Calculating CGPA for htno: {} in department: {}", htno, dept);
+
+            // Get list of all results tables for this department of the student's college
+            List<String> resultsTables = tableCatalog.getResultTables(college, dept);
 
             log.info("Found {} results tables for department: {}", resultsTables.size(), dept);
 
-            for (String table : resultsTables) {
-                try {
-                    String sanitizedTable = dbService.sanitizeTableName(table);
-                    List<Subject> semesterSubjects = jdbc.query(
-                        "SELECT * FROM " + sanitizedTable + " WHERE htno = ?",
-                        (rs, rowNum) -> {
-                            Subject s = new Subject();
-                            s.setHtno(rs.getString("htno"));
-                            s.setSubcode(rs.getString("subcode"));
-                            s.setSubname(rs.getString("subname"));
-                            s.setGrade(rs.getString("grade"));
-                            s.setCredit(rs.getDouble("credit"));
-                            return s;
-                        },
-                        htno
-                    );
-                    log.info("Found {} subjects in table: {}", semesterSubjects.size(), table);
-                    allSubjects.addAll(semesterSubjects);
-                } catch (Exception e) {
-                    log.debug("Error fetching from table {}: {}", table, e.getMessage());
-                }
-            }
+            // Get all semester results for this student, all semesters at once
+            List<Subject> allSubjects = collegeFanOut.collect("CGPA fallback for " + htno, resultsTables, table -> {
+                List<Subject> semesterSubjects = jdbc.query(
+                    "SELECT * FROM " + dbService.sanitizeTableName(table) + " WHERE htno = ?",
+                    (rs, rowNum) -> {
+                        Subject s = new Subject();
+                        s.setHtno(rs.getString("htno"));
+                        s.setSubcode(rs.getString("subcode"));
+                        s.setSubname(rs.getString("subname"));
+                        s.setGrade(rs.getString("grade"));
+                        s.setCredit(rs.getDouble("credit"));
+                        return s;
+                    },
+                    htno
+                );
+                log.debug("Found {} subjects in table: {}", semesterSubjects.size(), table);
+                return semesterSubjects;
+            });
 
             if (!allSubjects.isEmpty()) {
-                double totalPoints = 0;
-                double totalCredits = 0;
-
+                double[] total = new double[2];
                 for (Subject subject : allSubjects) {
-                    double gp = convertGradeToPoint(subject.getGrade());
-                    if (gp >= 0 && subject.getCredit() != null && subject.getCredit() > 0) {
-                        totalPoints += gp * subject.getCredit();
-                        totalCredits += subject.getCredit();
-                    }
+                    GradeUtil.accumulate(total, subject);
                 }
 
-                if (totalCredits > 0) {
-                    double cgpa = BigDecimal.valueOf(totalPoints / totalCredits)
-                            .setScale(2, RoundingMode.HALF_UP).doubleValue();
+                if (total[1] > 0) {
+                    double cgpa = GradeUtil.gpa(total);
                     response.put("cgpa", cgpa);
                     log.info("Calculated CGPA: {} for htno: {}", cgpa, htno);
                 }
@@ -374,64 +375,184 @@ public class EnhancedSearchController {
                                                     @RequestParam String grade,
                                                     @RequestParam String dept,
                                                     @RequestParam String semester) {
-        List<Map<String, Object>> results = new ArrayList<>();
         JdbcTemplate jdbc = dbService.getJdbcTemplateForCollege(null);
 
         // Get all colleges from table prefixes
         List<String> colleges = dbService.getAllDatabases();
+        String baseTableName = "results_" + dept.toLowerCase() + "_" + semester.replace("-", "_");
 
-        for (String college : colleges) {
-            try {
-                String baseTableName = "results_" + dept.toLowerCase() + "_" + semester.replace("-", "_");
-                String tableName = college.toLowerCase() + "_" + baseTableName;
-                String sanitizedTableName = dbService.sanitizeTableName(tableName);
+        // All colleges are searched at once; a college that fails or is too slow is left out
+        return collegeFanOut.collect("Subject search", colleges, college -> {
+            String tableName = college.toLowerCase() + "_" + baseTableName;
+            if (!tableCatalog.tableExists(tableName)) {
+                return List.of();
+            }
+
+            // Subject names are matched in memory, rows are read through the (subcode, grade) index
+            List<Map<String, Object>> queryResults = subjectSearchIndex.search(jdbc, tableName, subject, grade);
+            for (Map<String, Object> row : queryResults) {
+                row.put("college", college);
+            }
+            return queryResults;
+        });
+    }
+
+    /**
+     * ✅ Same rows as /api/search-by-subject, one page at a time, ordered by college, htno and subcode.
+     * Pass the returned nextCursor to get the following page; it is null after the last page.
+     */
+    @GetMapping("/api/search-by-subject/page")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> searchBySubjectPage(@RequestParam String subject,
+                                                                   @RequestParam String grade,
+                                                                   @RequestParam String dept,
+                                                                   @RequestParam String semester,
+                                                                   @RequestParam(required = false) String cursor,
+                                                                   @RequestParam(defaultValue = "100") int limit) {
+        Map<String, Object> response = new HashMap<>();
+        String[] position = decodeCursor(cursor);
+        if (cursor != null && position == null) {
+            response.put("error", "Invalid cursor");
+            return ResponseEntity.badRequest().body(response);
+        }
+
+        JdbcTemplate jdbc = dbService.getJdbcTemplateForCollege(null);
+        String baseTableName = "results_" + dept.toLowerCase() + "_" + semester.replace("-", "_");
+        int remaining = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        List<Map<String, Object>> rows = new ArrayList<>();
+        String nextCursor = null;
+
+        for (String college : sortedColleges()) {
+            // Colleges before the cursor's were finished on earlier pages
+            if (position != null && college.compareTo(position[0]) < 0) {
+                continue;
+            }
+            boolean resume = position != null && college.equals(position[0]);
+            String tableName = college + "_" + baseTableName;
+            if (!tableCatalog.tableExists(tableName)) {
+                continue;
+            }
+
+            SubjectSearchIndex.Page page = subjectSearchIndex.page(jdbc, tableName, subject, grade,
+                    resume ? position[1] : null, resume ? position[2] : null, remaining);
+            for (Map<String, Object> row : page.getRows()) {
+                row.remove("subcode");
+                row.put("college", college);
+                rows.add(row);
+            }
+            if (page.getLastHtno() != null) {
+                nextCursor = encodeCursor(college, page.getLastHtno(), page.getLastSubcode());
+                break;
+            }
+            // This college is exhausted, fill the rest of the page from the next one
+            remaining -= page.getRows().size();
+        }
 
-                // Query for students with the given subject and grade
-                String sql = "SELECT htno, subname, grade, internals FROM " + sanitizedTableName +
-                             " WHERE subname LIKE ? AND grade = ?";
+        response.put("rows", rows);
+        response.put("nextCursor", nextCursor);
+        return ResponseEntity.ok(response);
+    }
 
-                List<Map<String, Object>> queryResults = jdbc.queryForList(sql,
-                    "%" + subject + "%", grade);
+    /**
+     * ✅ Same rows as /api/search-by-subject as newline-delimited JSON, written one page of a college's
+     * rows at a time, so the server never holds the whole result or a connection between pages.
+     */
+    @GetMapping("/api/search-by-subject/stream")
+    public ResponseEntity<StreamingResponseBody> streamBySubject(@RequestParam String subject,
+                                                                 @RequestParam String grade,
+                                                                 @RequestParam String dept,
+                                                                 @RequestParam String semester) {
+        JdbcTemplate jdbc = dbService.getJdbcTemplateForCollege(null);
+        String baseTableName = "results_" + dept.toLowerCase() + "_" + semester.replace("-", "_");
+        List<String> colleges = sortedColleges();
 
-                for (Map<String, Object> row : queryResults) {
-                    row.put("college", college);
-                    results.add(row);
+        StreamingResponseBody body = out -> {
+            for (String college : colleges) {
+                String tableName = college + "_" + baseTableName;
+                if (!tableCatalog.tableExists(tableName)) {
+                    continue;
                 }
-            } catch (Exception e) {
-                log.warn("Error searching in college {}: {}", college, e.getMessage());
+                try {
+                    subjectSearchIndex.stream(jdbc, tableName, subject, grade, row -> {
+                        row.put("college", college);
+                        try {
+                            out.write(objectMapper.writeValueAsBytes(row));
+                            out.write('\n');
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+                } catch (UncheckedIOException e) {
+                    // The client went away; stop reading
+                    throw e.getCause();
+                } catch (Exception e) {
+                    log.warn("Error streaming results of college {}: {}", college, e.getMessage());
+                }
+                out.flush();
             }
+        };
+        return ResponseEntity.ok().header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_NDJSON_VALUE).body(body);
+    }
+
+    private List<String> sortedColleges() {
+        List<String> colleges = new ArrayList<>();
+        for (String college : dbService.getAllDatabases()) {
+            colleges.add(college.toLowerCase());
         }
+        Collections.sort(colleges);
+        return colleges;
+    }
+
+    private static String encodeCursor(String college, String htno, String subcode) {
+        String raw = college + "\n" + htno + "\n" + subcode;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
 
-        return results;
+    /**
+     * College, htno and subcode to continue after, or null if the cursor is missing or malformed.
+     */
+    private static String[] decodeCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\n", -1);
+            return parts.length == 3 ? parts : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
     }
 
     @GetMapping("/api/subject-suggestions")
     @ResponseBody
     public List<String> getSubjectSuggestions(@RequestParam String query,
                                              @RequestParam String dept,
-                                             @RequestParam String semester) {
-        List<String> suggestions = new ArrayList<>();
+                                             @RequestParam String semester,
+                                             @RequestParam(defaultValue = "10") int limit) {
+        // Word-prefix matches from the in-memory index; the per-college LIKE scan is only the fallback
+        List<String> indexed = subjectSearchIndex.suggest(dept, semester, query, limit);
+        if (indexed != null) {
+            return indexed;
+        }
+
         JdbcTemplate jdbc = dbService.getJdbcTemplateForCollege(null);
 
         // Get all colleges from table prefixes
         List<String> colleges = dbService.getAllDatabases();
+        String baseTableName = "results_" + dept.toLowerCase() + "_" + semester.replace("-", "_");
 
-        for (String college : colleges) {
-            try {
-                String baseTableName = "results_" + dept.toLowerCase() + "_" + semester.replace("-", "_");
-                String tableName = college.toLowerCase() + "_" + baseTableName;
-                String sanitizedTableName = dbService.sanitizeTableName(tableName);
-
-                // Query for subject names that match the query
-                String sql = "SELECT DISTINCT subname FROM " + sanitizedTableName + " WHERE subname LIKE ?";
-                List<String> subjects = jdbc.queryForList(sql, String.class, "%" + query + "%");
-                suggestions.addAll(subjects);
-            } catch (Exception e) {
-                // Ignore errors and continue with next college
+        List<String> suggestions = collegeFanOut.collect("Subject suggestions", colleges, college -> {
+            String tableName = college.toLowerCase() + "_" + baseTableName;
+            if (!tableCatalog.tableExists(tableName)) {
+                return List.of();
             }
-        }
+
+            // Query for subject names that match the query
+            String sql = "SELECT DISTINCT subname FROM " + dbService.sanitizeTableName(tableName) + " WHERE subname LIKE ?";
+            return jdbc.queryForList(sql, String.class, "%" + query + "%");
+        });
 
         // Remove duplicates and return
-        return suggestions.stream().distinct().collect(Collectors.toList());
+        return suggestions.stream().distinct().limit(limit).collect(Collectors.toList());
     }
 }
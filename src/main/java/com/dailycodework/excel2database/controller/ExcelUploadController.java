@@ -1,9 +1,9 @@
 package com.dailycodework.excel2database.controller;
 
-import com.dailycodework.excel2database.domain.Subject;
-import com.dailycodework.excel2database.service.ExcelUploadService;
-import com.dailycodework.excel2database.service.SubjectService;
-import com.dailycodework.excel2database.service.SgpaService;
+import com.dailycodework.excel2database.domain.UploadStats;
+import com.dailycodework.excel2database.service.ResultUploadPipeline;
+import com.dailycodework.excel2database.service.UploadJob;
+import com.dailycodework.excel2database.service.UploadJobService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
@@ -13,8 +13,8 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 
 @Controller
 @Slf4j
@@ -22,9 +22,8 @@ import java.util.Map;
 @RequestMapping("/excel")
 public class ExcelUploadController {
 
-    private final ExcelUploadService excelUploadService;
-    private final SubjectService subjectService;
-    private final SgpaService sgpaService;
+    private final ResultUploadPipeline resultUploadPipeline;
+    private final UploadJobService uploadJobService;
 
     @GetMapping("/upload-form")
     public String showUploadForm() {
@@ -51,14 +50,12 @@ public class ExcelUploadController {
             String dept = mainDept.equals("CS") ? subDept : mainDept;
             String cleanSemester = semester.replace("-", "_");
 
-            List<Subject> subjects = excelUploadService.getSubjectsDataFromExcel(file.getInputStream());
+            // Parsing, saving and SGPA calculation run as overlapping stages
+            UploadStats stats = resultUploadPipeline.upload(file.getInputStream(), dept, cleanSemester, college);
 
-            subjectService.saveSubjectsToDynamicSemesterTable(subjects, dept, cleanSemester, college);
-            sgpaService.calculateAndStoreAllSGPAForSemester(subjects, dept, cleanSemester, college);
-
-            model.addAttribute("message", type.equalsIgnoreCase("regular") ?
+            model.addAttribute("message", (type.equalsIgnoreCase("regular") ?
                     "✅ Uploaded Results for " + dept + " - " + semester :
-                    "✅ Updated Supplementary Results for " + dept + " - " + semester);
+                    "✅ Updated Supplementary Results for " + dept + " - " + semester) + " (" + stats + ")");
 
         } catch (Exception e) {
             log.error("Upload failed: {}", e.getMessage(), e);
@@ -69,7 +66,7 @@ public class ExcelUploadController {
     }
 
     /**
-     * Handle AJAX upload requests
+     * Handle AJAX upload requests: the upload runs as a background job and the page polls its status
      */
     @PostMapping("/upload-ajax")
     @ResponseBody
@@ -86,18 +83,16 @@ public class ExcelUploadController {
             String dept = mainDept.equals("CS") ? subDept : mainDept;
             String cleanSemester = semester.replace("-", "_");
 
-            List<Subject> subjects = excelUploadService.getSubjectsDataFromExcel(file.getInputStream());
-
-            subjectService.saveSubjectsToDynamicSemesterTable(subjects, dept, cleanSemester, college);
-            sgpaService.calculateAndStoreAllSGPAForSemester(subjects, dept, cleanSemester, college);
-
-            String message = type.equalsIgnoreCase("regular") ?
-                    "✅ Uploaded Results for " + dept + " - " + semester :
-                    "✅ Updated Supplementary Results for " + dept + " - " + semester;
+            UploadJob job = uploadJobService.submit(file, dept, cleanSemester, college, type);
 
-            response.put("status", "success");
-            response.put("message", message);
+            response.put("status", "accepted");
+            response.put("jobId", job.getId());
+            response.put("message", "⏳ Upload queued: " + job.getDescription());
 
+        } catch (RejectedExecutionException e) {
+            log.warn("Upload rejected, too many uploads in progress");
+            response.put("status", "error");
+            response.put("message", "❌ Too many uploads in progress. Please try again in a few minutes.");
         } catch (Exception e) {
             log.error("Upload failed: {}", e.getMessage(), e);
             response.put("status", "error");
@@ -106,4 +101,20 @@ public class ExcelUploadController {
 
         return response;
     }
+
+    /**
+     * ✅ Progress of a background upload: stage, rows parsed and written, rows/s, ETA and errors
+     */
+    @GetMapping("/upload-status/{jobId}")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> getUploadStatus(@PathVariable String jobId) {
+        UploadJob job = uploadJobService.getJob(jobId);
+        if (job == null) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("stage", "UNKNOWN");
+            response.put("error", "❌ Upload job not found or expired");
+            return ResponseEntity.status(404).body(response);
+        }
+        return ResponseEntity.ok(job.toStatus());
+    }
 }
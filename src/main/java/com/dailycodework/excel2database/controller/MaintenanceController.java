@@ -0,0 +1,114 @@
+package com.dailycodework.excel2database.controller;
+
+import com.dailycodework.excel2database.service.CgpaTotalsVerifier;
+import com.dailycodework.excel2database.service.DynamicDatabaseService;
+import com.dailycodework.excel2database.service.ResultTableIndexer;
+import com.dailycodework.excel2database.service.ResultUploadPipeline;
+import com.dailycodework.excel2database.service.SgpaRecalculationJob;
+import com.dailycodework.excel2database.service.SgpaRecalculationService;
+import com.dailycodework.excel2database.service.TableCatalog;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * ✅ Views of database housekeeping (connection pool, table catalog, result table indexes, CGPA totals, SGPA recalculation)
+ */
+@Controller
+@RequestMapping("/api/maintenance")
+@RequiredArgsConstructor
+@Slf4j
+public class MaintenanceController {
+
+    private final DynamicDatabaseService dbService;
+    private final TableCatalog tableCatalog;
+    private final ResultTableIndexer resultTableIndexer;
+    private final ResultUploadPipeline resultUploadPipeline;
+    private final CgpaTotalsVerifier cgpaTotalsVerifier;
+    private final SgpaRecalculationService sgpaRecalculationService;
+
+    /**
+     * ✅ Connection pool, table catalog and upload throughput statistics
+     */
+    @GetMapping("/status")
+    @ResponseBody
+    public Map<String, Object> getStatus() {
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("pool", dbService.getPoolStatistics());
+        response.put("catalog", tableCatalog.getStatistics());
+        response.put("uploads", resultUploadPipeline.getStatistics());
+        return response;
+    }
+
+    /**
+     * ✅ Which results tables were upgraded by the last index check
+     */
+    @GetMapping("/indexes")
+    @ResponseBody
+    public Map<String, Object> getIndexReport() {
+        return resultTableIndexer.getReport();
+    }
+
+    /**
+     * ✅ Start a new index check in the background
+     */
+    @PostMapping("/indexes")
+    @ResponseBody
+    public Map<String, Object> upgradeIndexes() {
+        boolean started = resultTableIndexer.upgradeInBackground();
+        log.info("Index upgrade requested, started: {}", started);
+        Map<String, Object> response = new LinkedHashMap<>(resultTableIndexer.getReport());
+        response.put("started", started);
+        return response;
+    }
+
+    /**
+     * ✅ Students whose CGPA totals were corrected by the last rebuild
+     */
+    @GetMapping("/cgpa-totals")
+    @ResponseBody
+    public Map<String, Object> getCgpaTotalsReport() {
+        return cgpaTotalsVerifier.getReport();
+    }
+
+    /**
+     * ✅ Rebuild all CGPA totals from the results tables in the background
+     */
+    @PostMapping("/cgpa-totals")
+    @ResponseBody
+    public Map<String, Object> rebuildCgpaTotals() {
+        boolean started = cgpaTotalsVerifier.verifyInBackground();
+        log.info("CGPA totals rebuild requested, started: {}", started);
+        Map<String, Object> response = new LinkedHashMap<>(cgpaTotalsVerifier.getReport());
+        response.put("started", started);
+        return response;
+    }
+
+    /**
+     * ✅ Recalculate the SGPAs of every results table of a college (all colleges when omitted) in the background
+     */
+    @PostMapping("/sgpa-recalculation")
+    @ResponseBody
+    public Map<String, Object> recalculateSgpa(@RequestParam(required = false) String college) {
+        SgpaRecalculationJob job = sgpaRecalculationService.start(college);
+        return job.toStatus();
+    }
+
+    /**
+     * ✅ Progress and per-table timings of a recalculation job
+     */
+    @GetMapping("/sgpa-recalculation/{jobId}")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> getSgpaRecalculation(@PathVariable String jobId) {
+        SgpaRecalculationJob job = sgpaRecalculationService.getJob(jobId);
+        if (job == null) {
+            return ResponseEntity.status(404).body(Map.of("error", "Unknown or expired job"));
+        }
+        return ResponseEntity.ok(job.toStatus());
+    }
+}
@@ -1,8 +1,11 @@
 package com.dailycodework.excel2database.controller;
 
 import com.dailycodework.excel2database.domain.Subject;
+import com.dailycodework.excel2database.service.CollegeFanOut;
 import com.dailycodework.excel2database.service.DynamicDatabaseService;
 import com.dailycodework.excel2database.service.StudentService;
+import com.dailycodework.excel2database.service.SubjectSearchIndex;
+import com.dailycodework.excel2database.service.TableCatalog;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Controller;
@@ -20,6 +23,9 @@ public class SearchController {
 
     private final DynamicDatabaseService dbService;
     private final StudentService studentService;
+    private final TableCatalog tableCatalog;
+    private final SubjectSearchIndex subjectSearchIndex;
+    private final CollegeFanOut collegeFanOut;
 
     @GetMapping("/search-students")
     public String showSearchPage(Model model) {
@@ -90,64 +96,58 @@ public class SearchController {
                                                     @RequestParam String grade,
                                                     @RequestParam String dept,
                                                     @RequestParam String semester) {
-        List<Map<String, Object>> results = new ArrayList<>();
         JdbcTemplate jdbc = dbService.getJdbcTemplateForCollege(null);
 
         // Get all colleges from table prefixes
         List<String> colleges = dbService.getAllDatabases();
+        String baseTableName = "results_" + dept.toLowerCase() + "_" + semester.replace("-", "_");
 
-        for (String college : colleges) {
-            try {
-                String baseTableName = "results_" + dept.toLowerCase() + "_" + semester.replace("-", "_");
-                String tableName = college.toLowerCase() + "_" + baseTableName;
-                String sanitizedTableName = dbService.sanitizeTableName(tableName);
-
-                // Query for students with the given subject and grade
-                String sql = "SELECT htno, subname, grade, internals FROM " + sanitizedTableName +
-                             " WHERE subname LIKE ? AND grade = ?";
-
-                List<Map<String, Object>> queryResults = jdbc.queryForList(sql,
-                    "%" + subject + "%", grade);
-
-                for (Map<String, Object> row : queryResults) {
-                    row.put("college", college);
-                    results.add(row);
-                }
-            } catch (Exception e) {
-                log.warn("Error searching in college {}: {}", college, e.getMessage());
+        // All colleges are searched at once; a college that fails or is too slow is left out
+        return collegeFanOut.collect("Subject search", colleges, college -> {
+            String tableName = college.toLowerCase() + "_" + baseTableName;
+            if (!tableCatalog.tableExists(tableName)) {
+                return List.of();
             }
-        }
 
-        return results;
+            // Subject names are matched in memory, rows are read through the (subcode, grade) index
+            List<Map<String, Object>> queryResults = subjectSearchIndex.search(jdbc, tableName, subject, grade);
+            for (Map<String, Object> row : queryResults) {
+                row.put("college", college);
+            }
+            return queryResults;
+        });
     }
 
     @GetMapping("/api/search/subject-suggestions")
     @ResponseBody
     public List<String> getSubjectSuggestions(@RequestParam String query,
                                              @RequestParam String dept,
-                                             @RequestParam String semester) {
-        List<String> suggestions = new ArrayList<>();
+                                             @RequestParam String semester,
+                                             @RequestParam(defaultValue = "10") int limit) {
+        // Word-prefix matches from the in-memory index; the per-college LIKE scan is only the fallback
+        List<String> indexed = subjectSearchIndex.suggest(dept, semester, query, limit);
+        if (indexed != null) {
+            return indexed;
+        }
+
         JdbcTemplate jdbc = dbService.getJdbcTemplateForCollege(null);
 
         // Get all colleges from table prefixes
         List<String> colleges = dbService.getAllDatabases();
+        String baseTableName = "results_" + dept.toLowerCase() + "_" + semester.replace("-", "_");
 
-        for (String college : colleges) {
-            try {
-                String baseTableName = "results_" + dept.toLowerCase() + "_" + semester.replace("-", "_");
-                String tableName = college.toLowerCase() + "_" + baseTableName;
-                String sanitizedTableName = dbService.sanitizeTableName(tableName);
-
-                // Query for subject names that match the query
-                String sql = "SELECT DISTINCT subname FROM " + sanitizedTableName + " WHERE subname LIKE ?";
-                List<String> subjects = jdbc.queryForList(sql, String.class, "%" + query + "%");
-                suggestions.addAll(subjects);
-            } catch (Exception e) {
-                // Ignore errors and continue with next college
+        List<String> suggestions = collegeFanOut.collect("Subject suggestions", colleges, college -> {
+            String tableName = college.toLowerCase() + "_" + baseTableName;
+            if (!tableCatalog.tableExists(tableName)) {
+                return List.of();
             }
-        }
+
+            // Query for subject names that match the query
+            String sql = "SELECT DISTINCT subname FROM " + dbService.sanitizeTableName(tableName) + " WHERE subname LIKE ?";
+            return jdbc.queryForList(sql, String.class, "%" + query + "%");
+        });
 
         // Remove duplicates and return
-        return suggestions.stream().distinct().collect(Collectors.toList());
+        return suggestions.stream().distinct().limit(limit).collect(Collectors.toList());
     }
 }
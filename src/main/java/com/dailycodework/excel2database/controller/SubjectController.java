@@ -2,8 +2,10 @@ package com.dailycodework.excel2database.controller;
 
 import com.dailycodework.excel2database.domain.Subject;
 import com.dailycodework.excel2database.service.DynamicDatabaseService;
+import com.dailycodework.excel2database.service.RankIndexService;
 import com.dailycodework.excel2database.service.SgpaService;
 import com.dailycodework.excel2database.service.StudentService;
+import com.dailycodework.excel2database.service.TableCatalog;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Controller;
@@ -20,6 +22,8 @@ public class SubjectController {
     private final DynamicDatabaseService dbService;
     private final SgpaService sgpaService;
     private final StudentService studentService;  // ✅ Injected correctly
+    private final TableCatalog tableCatalog;
+    private final RankIndexService rankIndexService;
 
     /**
      * ✅ Used in student-dashboard to fetch subject data for a semester
@@ -53,7 +57,7 @@ public class SubjectController {
     }
 
     /**
-     * ✅ Trigger SGPA calculation from UI (admin side)
+     * ✅ Trigger SGPA calculation from UI (admin side). Computed inside MySQL, no result rows are read.
      */
     @GetMapping("/subjects/calculate-all-sgpa")
     public String calculateAllSGPA(@RequestParam String semester,
@@ -61,8 +65,7 @@ public class SubjectController {
                                    @RequestParam String college,
                                    Model model) {
         try {
-            List<Subject> subjects = dbService.getAllSubjectsFromDynamicTable(college, dept, semester);
-            sgpaService.calculateAndStoreAllSGPAForSemester(subjects, dept, semester, college);
+            sgpaService.calculateSemesterSgpaInDatabase(dept, semester, college);
             model.addAttribute("message", "✅ SGPA calculated for all students in " + dept + " - " + semester);
         } catch (Exception e) {
             model.addAttribute("error", "❌ SGPA calculation failed: " + e.getMessage());
@@ -111,8 +114,7 @@ public class SubjectController {
                 log.info("Looking for CGPA in table: {}", gradesTable);
 
                 // Check if the grades table exists
-                java.util.List<String> gradesTables = jdbc.queryForList("SHOW TABLES LIKE ?", String.class, gradesTable);
-                if (!gradesTables.isEmpty()) {
+                if (tableCatalog.tableExists(gradesTable)) {
                     String query = "SELECT cgpa FROM " + sanitizedGradesTable + " WHERE htno = ?";
                     log.debug("Executing query: {}", query);
 
@@ -137,8 +139,7 @@ public class SubjectController {
 
                     log.info("Looking for CGPA in old table format: {}", oldSgpaTable);
 
-                    java.util.List<String> oldTables = jdbc.queryForList("SHOW TABLES LIKE ?", String.class, oldSgpaTable);
-                    if (!oldTables.isEmpty()) {
+                    if (tableCatalog.tableExists(oldSgpaTable)) {
                         String query = "SELECT cgpa FROM " + sanitizedOldTable + " WHERE htno = ?";
                         log.debug("Executing query: {}", query);
 
@@ -169,4 +170,39 @@ public class SubjectController {
             return response;
         }
     }
+
+    /**
+     * ✅ Class rank and percentile of a student's SGPA within their department and semester
+     */
+    @GetMapping("/subjects/api/get-rank")
+    @ResponseBody
+    public java.util.Map<String, Object> getRank(@RequestParam String htno,
+                                                 @RequestParam String dept,
+                                                 @RequestParam String semester) {
+        java.util.Map<String, Object> response = new java.util.HashMap<>();
+        try {
+            String college = studentService.detectCollegeForHtno(htno);
+            if (college == null) {
+                log.error("❌ College not found for HTNO: {}", htno);
+                response.put("error", "Student not found");
+                return response;
+            }
+
+            RankIndexService.Rank rank = rankIndexService.getRank(college, dept, semester, htno);
+            if (rank == null) {
+                response.put("error", "No SGPA recorded for semester " + semester);
+                return response;
+            }
+            response.put("semester", semester);
+            response.put("sgpa", rank.getSgpa());
+            response.put("rank", rank.getRank());
+            response.put("outOf", rank.getOutOf());
+            response.put("percentile", rank.getPercentile());
+            return response;
+        } catch (Exception e) {
+            log.error("❌ Error in getRank for HTNO {}: {}", htno, e.getMessage(), e);
+            response.put("error", "An error occurred while retrieving the rank");
+            return response;
+        }
+    }
 }
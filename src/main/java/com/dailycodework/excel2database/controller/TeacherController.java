@@ -6,10 +6,17 @@ import com.dailycodework.excel2database.service.DirectEmailService;
 import com.dailycodework.excel2database.service.TeacherService;
 import com.dailycodework.excel2database.util.OtpUtil;
 import lombok.RequiredArgsConstructor;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.context.HttpSessionSecurityContextRepository;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletRequest;
+import java.util.List;
 import java.util.UUID;
 
 @Controller
@@ -94,6 +101,7 @@ public class TeacherController {
     @PostMapping("/teacher/login")
     public String handleTeacherLogin(@RequestParam String firstName,
                                      @RequestParam String password,
+                                     HttpServletRequest request,
                                      Model model) {
 
         String[] result = teacherService.findCollegeAndDeptByFirstName(firstName);
@@ -111,10 +119,26 @@ public class TeacherController {
             return "teacher-login";
         }
 
+        signIn(request, firstName);
         model.addAttribute("firstName", firstName);
         return "teacher-dashboard";
     }
 
+    /**
+     * ✅ Keep the teacher signed in for the rest of the session, so /api/maintenance/** accepts their requests.
+     */
+    private void signIn(HttpServletRequest request, String firstName) {
+        // New session id on login, so an id handed out before login cannot be reused
+        request.getSession(true);
+        request.changeSessionId();
+
+        SecurityContext context = SecurityContextHolder.createEmptyContext();
+        context.setAuthentication(new UsernamePasswordAuthenticationToken(firstName, null,
+                List.of(new SimpleGrantedAuthority("ROLE_TEACHER"))));
+        SecurityContextHolder.setContext(context);
+        request.getSession().setAttribute(HttpSessionSecurityContextRepository.SPRING_SECURITY_CONTEXT_KEY, context);
+    }
+
     @GetMapping("/teacher-dashboard")
     public String showTeacherDashboard(Model model) {
         // If user is not in session, redirect to login
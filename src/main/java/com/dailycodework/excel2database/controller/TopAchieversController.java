@@ -1,41 +1,66 @@
-//package com.dailycodework.excel2database.controller;
-//
-//import com.dailycodework.excel2database.domain.Student;
-//import com.dailycodework.excel2database.service.StudentService;
-//import org.springframework.web.bind.annotation.*;
-//import java.util.*;
-//import java.util.stream.Collectors;
-//
-//@RestController
-//@RequestMapping("/api")
-//@CrossOrigin(origins = "*")
-//public class TopAchieversController {
-//
-//    private final StudentService studentService;
-//
-//    public TopAchieversController(StudentService studentService) {
-//        this.studentService = studentService;
-//    }
-//
-//    @GetMapping("/top-achievers")
-//    public Map<String, Object> getTopAchievers(
-//            @RequestParam String department,
-//            @RequestParam String semester) {
-//
-//        List<Student> allStudents = studentService.findByDepartmentAndSemester(department, semester);
-//
-//        List<Student> top3 = allStudents.stream()
-//                .sorted(Comparator.comparingDouble(Student::getSgpa).reversed())
-//                .limit(3)
-//                .collect(Collectors.toList());
-//
-//        Student overallTopper = allStudents.stream()
-//                .max(Comparator.comparingDouble(Student::getCgpa))
-//                .orElse(null);
-//
-//        Map<String, Object> res = new HashMap<>();
-//        res.put("top3", top3);
-//        res.put("overallTopper", overallTopper);
-//        return res;
-//    }
-//}
+package com.dailycodework.excel2database.controller;
+
+import com.dailycodework.excel2database.service.TopAchieversService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.*;
+
+/**
+ * ✅ Top students by SGPA and the overall topper by CGPA, served from {@link TopAchieversService}.
+ */
+@Controller
+@RequestMapping("/api")
+@RequiredArgsConstructor
+@Slf4j
+public class TopAchieversController {
+
+    private final TopAchieversService topAchieversService;
+
+    /**
+     * ✅ Used by the top achievers page. college is optional; without it all colleges are ranked together.
+     */
+    @GetMapping("/top-achievers")
+    @ResponseBody
+    public Map<String, Object> getTopAchievers(@RequestParam String department,
+                                               @RequestParam String semester,
+                                               @RequestParam(required = false) String college,
+                                               @RequestParam(defaultValue = "3") int limit) {
+        Map<String, Object> res = new HashMap<>();
+        try {
+            List<Map<String, Object>> top = new ArrayList<>();
+            for (TopAchieversService.Achiever achiever : topAchieversService.topBySgpa(college, department, semester, limit)) {
+                Map<String, Object> student = toStudent(achiever);
+                student.put("sgpa", achiever.getScore());
+                top.add(student);
+            }
+            res.put("top3", top);
+
+            List<TopAchieversService.Achiever> toppers = topAchieversService.topByCgpa(college, department, 1);
+            if (!toppers.isEmpty()) {
+                Map<String, Object> topper = toStudent(toppers.get(0));
+                topper.put("cgpa", toppers.get(0).getScore());
+                res.put("overallTopper", topper);
+            } else {
+                res.put("overallTopper", null);
+            }
+        } catch (Exception e) {
+            log.error("❌ Error getting top achievers for {} {}: {}", department, semester, e.getMessage(), e);
+            res.put("top3", List.of());
+            res.put("error", "Could not load top achievers");
+        }
+        return res;
+    }
+
+    private Map<String, Object> toStudent(TopAchieversService.Achiever achiever) {
+        Map<String, Object> student = new HashMap<>();
+        String name = achiever.getName();
+        student.put("name", name == null || name.isBlank() ? achiever.getHtno() : name);
+        student.put("rollNumber", achiever.getHtno());
+        student.put("department", achiever.getDepartment().toUpperCase());
+        student.put("college", achiever.getCollege());
+        return student;
+    }
+}
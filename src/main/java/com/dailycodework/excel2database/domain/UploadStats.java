@@ -0,0 +1,25 @@
+package com.dailycodework.excel2database.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * ✅ Throughput of a single results upload
+ */
+@Getter
+@AllArgsConstructor
+public class UploadStats {
+    private int rows;
+    private long millis;
+    // How the rows were written: "bulk-load", "batched" or "row-by-row"
+    private String mode;
+
+    public long getRowsPerSecond() {
+        return millis > 0 ? rows * 1000L / millis : rows;
+    }
+
+    @Override
+    public String toString() {
+        return rows + " rows in " + millis + " ms (" + getRowsPerSecond() + " rows/s, " + mode + ")";
+    }
+}
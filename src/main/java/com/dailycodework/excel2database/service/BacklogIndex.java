@@ -0,0 +1,252 @@
+package com.dailycodework.excel2database.service;
+
+import com.dailycodework.excel2database.domain.Subject;
+import com.dailycodework.excel2database.util.GradeUtil;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * ✅ Subjects still at F, AB or MP for every student, across all semesters of a department.
+ *
+ * Each department has a dictionary of subjects and one of students, both numbered from 0.
+ * A student's open backlogs are a BitSet over subject numbers, and each subject keeps a
+ * BitSet over student numbers, so per-student, per-subject and per-cohort queries never
+ * touch the results tables.
+ *
+ * A department is loaded from its results tables the first time it is queried. After that
+ * {@link ResultUploadPipeline} feeds it every row once it is saved. Like the upload itself, a pass
+ * in any attempt wins: a failing grade only opens a backlog if the subject was never
+ * passed, and a passing grade clears it.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class BacklogIndex {
+
+    private final DynamicDatabaseService dynamicDbService;
+    private final TableCatalog tableCatalog;
+
+    // "college/dept" -> backlogs of that department
+    private final Map<String, DepartmentBacklog> departments = new ConcurrentHashMap<>();
+
+    /**
+     * ✅ Apply uploaded rows. Departments that were never queried are skipped; they load from the tables later.
+     */
+    public void record(String college, String dept, String semester, List<Subject> subjects) {
+        DepartmentBacklog backlog = departments.get(key(college, dept));
+        if (backlog == null) {
+            return;
+        }
+        String sem = semester.replace("_", "-");
+        synchronized (backlog) {
+            // Waits for a load in progress, so rows it missed are still applied
+            if (!backlog.loaded) {
+                return;
+            }
+            for (Subject subject : subjects) {
+                backlog.apply(subject.getHtno(), subject.getSubcode(), subject.getSubname(), sem, subject.getGrade());
+            }
+        }
+    }
+
+    /**
+     * ✅ Forget a department, e.g. after an upload failed halfway. It is reloaded on the next query.
+     */
+    public void invalidate(String college, String dept) {
+        departments.remove(key(college, dept));
+    }
+
+    /**
+     * ✅ Open backlogs of one student.
+     */
+    public List<Backlog> forStudent(String college, String dept, String htno) {
+        DepartmentBacklog backlog = loaded(college, dept);
+        synchronized (backlog) {
+            Integer student = backlog.studentIds.get(htno);
+            return student == null ? List.of() : backlog.subjectsOf(backlog.failing.get(student));
+        }
+    }
+
+    /**
+     * ✅ Roll numbers of the students with an open backlog in a subject.
+     */
+    public List<String> forSubject(String college, String dept, String subcode) {
+        DepartmentBacklog backlog = loaded(college, dept);
+        synchronized (backlog) {
+            Integer subject = backlog.subjectIds.get(subcode);
+            if (subject == null) {
+                return List.of();
+            }
+            List<String> htnos = new ArrayList<>();
+            BitSet students = backlog.failingBySubject.get(subject);
+            for (int s = students.nextSetBit(0); s >= 0; s = students.nextSetBit(s + 1)) {
+                htnos.add(backlog.htnos.get(s));
+            }
+            Collections.sort(htnos);
+            return htnos;
+        }
+    }
+
+    /**
+     * ✅ Open backlog count of every student in a department with at least one, optionally only those
+     * whose roll number starts with a batch prefix, and how many of them each subject holds back.
+     */
+    public Map<String, Object> forCohort(String college, String dept, String batch) {
+        DepartmentBacklog backlog = loaded(college, dept);
+        synchronized (backlog) {
+            String prefix = batch == null ? "" : batch.toUpperCase();
+            BitSet cohort = new BitSet();
+            Map<String, Integer> students = new TreeMap<>();
+            for (int s = 0; s < backlog.htnos.size(); s++) {
+                String htno = backlog.htnos.get(s);
+                if (!htno.toUpperCase().startsWith(prefix)) {
+                    continue;
+                }
+                int open = backlog.failing.get(s).cardinality();
+                if (open > 0) {
+                    cohort.set(s);
+                    students.put(htno, open);
+                }
+            }
+
+            List<Map<String, Object>> subjects = new ArrayList<>();
+            for (int j = 0; j < backlog.subcodes.size(); j++) {
+                BitSet failing = (BitSet) backlog.failingBySubject.get(j).clone();
+                failing.and(cohort);
+                if (!failing.isEmpty()) {
+                    Map<String, Object> subject = new LinkedHashMap<>();
+                    subject.put("subcode", backlog.subcodes.get(j));
+                    subject.put("subname", backlog.subnames.get(j));
+                    subject.put("semester", backlog.semesters.get(j));
+                    subject.put("students", failing.cardinality());
+                    subjects.add(subject);
+                }
+            }
+
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("studentsWithBacklogs", students.size());
+            result.put("openBacklogs", students.values().stream().mapToInt(Integer::intValue).sum());
+            result.put("students", students);
+            result.put("subjects", subjects);
+            return result;
+        }
+    }
+
+    /**
+     * The department's backlogs, loaded on first use. Departments without results tables are rejected
+     * before anything is cached, so made-up names can't fill the map with empty entries.
+     */
+    private DepartmentBacklog loaded(String college, String dept) {
+        if (tableCatalog.getResultSemesters(college.toLowerCase(), dept.toLowerCase()).isEmpty()) {
+            throw new IllegalArgumentException("No results uploaded for " + dept + " in " + college);
+        }
+        String key = key(college, dept);
+        DepartmentBacklog backlog = departments.computeIfAbsent(key, k -> new DepartmentBacklog());
+        synchronized (backlog) {
+            if (!backlog.loaded) {
+                try {
+                    load(backlog, college.toLowerCase(), dept.toLowerCase());
+                    backlog.loaded = true;
+                } catch (RuntimeException e) {
+                    departments.remove(key, backlog);
+                    throw e;
+                }
+            }
+        }
+        return backlog;
+    }
+
+    private void load(DepartmentBacklog backlog, String college, String dept) {
+        long start = System.currentTimeMillis();
+        JdbcTemplate jdbc = dynamicDbService.getJdbcTemplateForCollege(college);
+        for (String semester : tableCatalog.getResultSemesters(college, dept)) {
+            String table = dynamicDbService.sanitizeTableName(college + "_results_" + dept + "_" + semester);
+            String sem = semester.replace("_", "-");
+            jdbc.query("SELECT htno, subcode, subname, grade FROM " + table, rs -> {
+                backlog.apply(rs.getString(1), rs.getString(2), rs.getString(3), sem, rs.getString(4));
+            });
+        }
+        log.info("📚 Loaded backlogs of {} {}: {} students, {} subjects in {} ms", college, dept,
+                backlog.htnos.size(), backlog.subcodes.size(), System.currentTimeMillis() - start);
+    }
+
+    private static String key(String college, String dept) {
+        return college.toLowerCase() + "/" + dept.toLowerCase();
+    }
+
+    /**
+     * Dictionaries and bitsets of one department. Guarded by its own monitor.
+     */
+    private static final class DepartmentBacklog {
+        private boolean loaded;
+
+        private final List<String> subcodes = new ArrayList<>();
+        private final List<String> subnames = new ArrayList<>();
+        private final List<String> semesters = new ArrayList<>();
+        private final Map<String, Integer> subjectIds = new HashMap<>();
+        private final List<BitSet> failingBySubject = new ArrayList<>();
+
+        private final List<String> htnos = new ArrayList<>();
+        private final Map<String, Integer> studentIds = new HashMap<>();
+        private final List<BitSet> failing = new ArrayList<>();
+        private final List<BitSet> passed = new ArrayList<>();
+
+        void apply(String htno, String subcode, String subname, String semester, String grade) {
+            if (htno == null || subcode == null) {
+                return;
+            }
+            byte code = GradeUtil.parse(grade);
+            if (code == GradeUtil.UNKNOWN) {
+                return;
+            }
+            int subject = subjectIds.computeIfAbsent(subcode, s -> {
+                subcodes.add(s);
+                subnames.add(subname);
+                semesters.add(semester);
+                failingBySubject.add(new BitSet());
+                return subcodes.size() - 1;
+            });
+            int student = studentIds.computeIfAbsent(htno, h -> {
+                htnos.add(h);
+                failing.add(new BitSet());
+                passed.add(new BitSet());
+                return htnos.size() - 1;
+            });
+
+            if (GradeUtil.points(code) > 0) {
+                passed.get(student).set(subject);
+                failing.get(student).clear(subject);
+                failingBySubject.get(subject).clear(student);
+            } else if (!passed.get(student).get(subject)) {
+                failing.get(student).set(subject);
+                failingBySubject.get(subject).set(student);
+            }
+        }
+
+        List<Backlog> subjectsOf(BitSet open) {
+            List<Backlog> backlogs = new ArrayList<>();
+            for (int j = open.nextSetBit(0); j >= 0; j = open.nextSetBit(j + 1)) {
+                backlogs.add(new Backlog(subcodes.get(j), subnames.get(j), semesters.get(j)));
+            }
+            return backlogs;
+        }
+    }
+
+    /**
+     * One subject a student still has to clear.
+     */
+    @Getter
+    @AllArgsConstructor
+    public static final class Backlog {
+        private final String subcode;
+        private final String subname;
+        private final String semester;
+    }
+}
@@ -0,0 +1,115 @@
+package com.dailycodework.excel2database.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * ✅ Rebuilds the running CGPA totals from the results tables and reports any drift.
+ *
+ * Uploads keep the totals up to date one semester at a time (see {@link SgpaService}).
+ * This job recomputes them for every department from scratch, so totals from before the
+ * ledger existed, or changed by hand, are brought back in line.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CgpaTotalsVerifier {
+
+    private final SgpaService sgpaService;
+    private final TableCatalog tableCatalog;
+
+    @Value("${app.cgpa-totals.verify-on-startup:true}")
+    private boolean verifyOnStartup;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "cgpa-totals-verifier");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    // "college/dept" -> students whose totals had drifted, or -1 when the rebuild failed
+    private volatile Map<String, Integer> lastReport = Map.of();
+    private volatile long lastRunStartedAt;
+    private volatile long lastRunFinishedAt;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (verifyOnStartup) {
+            verifyInBackground();
+        } else {
+            log.info("CGPA totals verification on startup disabled");
+        }
+    }
+
+    /**
+     * ✅ Start a rebuild of all totals in the background.
+     * Returns false if one is already running.
+     */
+    public boolean verifyInBackground() {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        executor.submit(() -> {
+            try {
+                verifyAll();
+            } catch (Exception e) {
+                log.error("❌ CGPA totals verification failed: {}", e.getMessage(), e);
+            } finally {
+                running.set(false);
+            }
+        });
+        return true;
+    }
+
+    private void verifyAll() {
+        lastRunStartedAt = System.currentTimeMillis();
+        Map<String, Integer> report = new LinkedHashMap<>();
+        int drifted = 0;
+        for (String college : tableCatalog.getColleges()) {
+            for (String dept : tableCatalog.getResultDepartments(college)) {
+                try {
+                    int mismatches = sgpaService.rebuildTotals(college, dept);
+                    report.put(college + "/" + dept, mismatches);
+                    drifted += mismatches;
+                } catch (Exception e) {
+                    log.warn("⚠️ Could not rebuild CGPA totals for {} {}: {}", college, dept, e.getMessage());
+                    report.put(college + "/" + dept, -1);
+                }
+            }
+        }
+
+        lastReport = Map.copyOf(report);
+        lastRunFinishedAt = System.currentTimeMillis();
+        log.info("🧮 CGPA totals rebuilt for {} departments, {} students corrected, took {} ms",
+                report.size(), drifted, lastRunFinishedAt - lastRunStartedAt);
+    }
+
+    /**
+     * ✅ Students corrected per department by the last run.
+     */
+    public Map<String, Object> getReport() {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("running", running.get());
+        report.put("lastRunStartedAt", lastRunStartedAt);
+        report.put("lastRunFinishedAt", lastRunFinishedAt);
+        report.put("corrected", lastReport);
+        return report;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,182 @@
+package com.dailycodework.excel2database.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * ✅ Runs the same piece of work for every college (or every table) at once, with a deadline.
+ *
+ * Searches and lookups used to visit the colleges one after the other, so a request took as
+ * long as all of their queries added up. Here each college is a task on a shared bounded pool,
+ * sized below the connection pool so a burst of searches cannot take every connection.
+ *
+ * {@link #collect} waits for all tasks until the deadline and merges what arrived, in the
+ * order of the keys; colleges that failed or were too slow are logged and left out.
+ * {@link #first} returns the answer of the earliest key that has one and cancels the rest;
+ * it throws instead of returning null when slow keys leave the answer unknown.
+ *
+ * Every key runs on the pool, even when there is only one, so the deadline bounds every call.
+ * When the pool and its queue are full a key is not run at all and counts as missed, rather
+ * than running on the request thread where no deadline could stop it.
+ *
+ * Work passed in must not call back into the fan-out, or it can wait on its own pool.
+ */
+@Component
+@Slf4j
+public class CollegeFanOut {
+
+    @Value("${app.fanout.parallelism:8}")
+    private int parallelism;
+
+    @Value("${app.fanout.timeout-ms:5000}")
+    private long timeoutMs;
+
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger count = new AtomicInteger();
+        int threads = Math.max(1, parallelism);
+        // When the queue is full a task is rejected and its key missed; see submit
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(threads * 16), r -> {
+                    Thread thread = new Thread(r, "college-fanout-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * ✅ Results of every key merged in key order. Keys that fail or miss the deadline contribute nothing.
+     */
+    public <T> List<T> collect(String task, List<String> keys, Function<String, List<T>> work) {
+        if (keys.isEmpty()) {
+            return new ArrayList<>();
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        Map<String, Future<List<T>>> futures = new LinkedHashMap<>();
+        List<String> missed = new ArrayList<>();
+        for (String key : keys) {
+            Future<List<T>> future = submit(task, key, () -> work.apply(key));
+            if (future != null) {
+                futures.put(key, future);
+            } else {
+                missed.add(key);
+            }
+        }
+
+        List<T> merged = new ArrayList<>();
+        for (Map.Entry<String, Future<List<T>>> entry : futures.entrySet()) {
+            try {
+                List<T> part = entry.getValue().get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                if (part != null) {
+                    merged.addAll(part);
+                }
+            } catch (TimeoutException e) {
+                entry.getValue().cancel(true);
+                missed.add(entry.getKey());
+            } catch (ExecutionException e) {
+                log.warn("⚠️ {} failed for {}: {}", task, entry.getKey(), e.getCause().getMessage());
+                missed.add(entry.getKey());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                futures.values().forEach(f -> f.cancel(true));
+                break;
+            }
+        }
+        if (!missed.isEmpty()) {
+            log.warn("⚠️ {} returned partial results, missing {} of {}: {}", task, missed.size(), keys.size(), missed);
+        }
+        return merged;
+    }
+
+    /**
+     * ✅ The non-null answer of the earliest key, or null when every key answered null.
+     *
+     * All keys run at once, but the answers are read in key order, so the same data always gives
+     * the same answer. A later key's answer is taken only when an earlier one missed the deadline
+     * or could not be queued. If no key answered and some of them were missed, the answer is unknown rather than null,
+     * and {@link FanOutTimeoutException} is thrown so callers don't mistake it for a miss.
+     */
+    public <T> T first(String task, List<String> keys, Function<String, T> work) {
+        if (keys.isEmpty()) {
+            return null;
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        List<Future<T>> futures = new ArrayList<>();
+        try {
+            for (String key : keys) {
+                futures.add(submit(task, key, () -> work.apply(key)));
+            }
+            List<String> missed = new ArrayList<>();
+            boolean late = false;
+            for (int i = 0; i < futures.size(); i++) {
+                Future<T> future = futures.get(i);
+                if (future == null || (late && !future.isDone())) {
+                    // Rejected, or still running past the deadline
+                    missed.add(keys.get(i));
+                    continue;
+                }
+                try {
+                    // Past the deadline only answers that are already there are taken
+                    T answer = late ? future.get()
+                            : future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                    if (answer != null) {
+                        return answer;
+                    }
+                } catch (TimeoutException e) {
+                    late = true;
+                    missed.add(keys.get(i));
+                } catch (ExecutionException e) {
+                    log.warn("⚠️ {} failed for {}: {}", task, keys.get(i), e.getCause().getMessage());
+                }
+            }
+            if (!missed.isEmpty()) {
+                log.warn("⚠️ {} got no answer within {} ms, missing {} of {}: {}", task, timeoutMs, missed.size(), keys.size(), missed);
+                throw new FanOutTimeoutException(task + " got no answer from " + missed.size() + " of " + keys.size() +
+                        " keys within " + timeoutMs + " ms");
+            }
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new FanOutTimeoutException(task + " was interrupted");
+        } finally {
+            futures.stream().filter(Objects::nonNull).forEach(f -> f.cancel(true));
+        }
+    }
+
+    /**
+     * Queue one key's work, or return null when every worker and queue slot is taken.
+     */
+    private <T> Future<T> submit(String task, String key, Callable<T> work) {
+        try {
+            return executor.submit(work);
+        } catch (RejectedExecutionException e) {
+            log.warn("⚠️ {} skipped {}: the fan-out pool is full", task, key);
+            return null;
+        }
+    }
+
+    /**
+     * ✅ Thrown by {@link #first} when no key answered and some of them missed the deadline or
+     * could not be queued, so whether an answer exists is not known.
+     */
+    public static class FanOutTimeoutException extends RuntimeException {
+        public FanOutTimeoutException(String message) {
+            super(message);
+        }
+    }
+}
@@ -1,20 +1,42 @@
 package com.dailycodework.excel2database.service;
 
 import com.dailycodework.excel2database.domain.Subject;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import javax.sql.DataSource;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
 
 @Service
+@RequiredArgsConstructor
 @Slf4j
 public class DynamicDatabaseService {
 
+    private final TableCatalog tableCatalog;
+    private final HtnoDirectory htnoDirectory;
+
     @Value("${spring.datasource.username}")
     private String dbUsername;
 
@@ -27,69 +49,225 @@ public class DynamicDatabaseService {
     @Value("${spring.datasource.url}")
     private String dbUrl;
 
-    private JdbcTemplate mainJdbcTemplate;
+    // Connection pool settings for the shared results database
+    @Value("${app.datasource.pool.maximum-pool-size:20}")
+    private int maximumPoolSize;
+
+    @Value("${app.datasource.pool.minimum-idle:5}")
+    private int minimumIdle;
+
+    @Value("${app.datasource.pool.idle-timeout-ms:600000}")
+    private long idleTimeoutMs;
+
+    @Value("${app.datasource.pool.max-lifetime-ms:1800000}")
+    private long maxLifetimeMs;
+
+    @Value("${app.datasource.pool.connection-timeout-ms:30000}")
+    private long connectionTimeoutMs;
+
+    @Value("${app.datasource.pool.validation-timeout-ms:5000}")
+    private long validationTimeoutMs;
+
+    // The only directory the driver may read for LOAD DATA LOCAL INFILE
+    @Value("${app.upload.bulk-load.directory:${java.io.tmpdir}/results-bulk-load}")
+    private String bulkLoadDirectory;
+
+    private volatile HikariDataSource dataSource;
+    private volatile JdbcTemplate mainJdbcTemplate;
+    private volatile JdbcTemplate untimedJdbcTemplate;
+    private volatile TransactionTemplate transactionTemplate;
 
-    // List of system databases to exclude when listing available databases
-    private static final List<String> SYSTEM_DATABASES = List.of(
-            "mysql", "information_schema", "performance_schema", "sys"
-    );
+    // Connection acquire timings reported by the pool
+    private final LongAdder acquireCount = new LongAdder();
+    private final LongAdder acquireNanosTotal = new LongAdder();
+    private final LongAccumulator acquireNanosMax = new LongAccumulator(Long::max, 0L);
+    private final LongAdder acquireTimeouts = new LongAdder();
 
-    // Store the current college context
-    private String currentCollege;
+    /**
+     * ✅ Create the connection pool once at startup.
+     * If the database is not reachable yet, the first caller retries the initialization.
+     */
+    @PostConstruct
+    public void init() {
+        try {
+            initializeJdbcTemplate();
+        } catch (Exception e) {
+            log.error("❌ Database not available at startup, will retry on first use: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * ✅ Close the pool when the application shuts down.
+     */
+    @PreDestroy
+    public void shutdown() {
+        HikariDataSource ds = dataSource;
+        if (ds != null && !ds.isClosed()) {
+            log.info("🔧 Closing database connection pool");
+            ds.close();
+        }
+    }
 
     /**
      * ✅ Get JdbcTemplate for the main database.
      * Instead of creating a new database for each college, we'll use a single database
      * and create tables with college name as prefix.
+     * The template is shared by all colleges, so callers must pass their college
+     * explicitly to whatever builds the table names; no college state is kept here.
      */
     public JdbcTemplate getJdbcTemplateForCollege(String collegeName) {
-        // Store the current college context
-        this.currentCollege = collegeName;
+        JdbcTemplate jdbc = mainJdbcTemplate;
+        if (jdbc == null) {
+            jdbc = initializeJdbcTemplate();
+        }
+        return jdbc;
+    }
 
-        // Initialize the main JDBC template if it's null
-        if (mainJdbcTemplate == null) {
-            log.info("🔧 Initializing main JdbcTemplate");
-            try {
-                DataSource dataSource = createDataSource(dbUrl);
-                // Test the connection before creating the JdbcTemplate
-                try (java.sql.Connection conn = dataSource.getConnection()) {
-                    if (conn.isValid(5)) { // 5 second timeout
-                        log.info("✅ Database connection test successful");
-                    } else {
-                        log.error("❌ Database connection test failed - connection is invalid");
-                        throw new RuntimeException("Database connection test failed");
-                    }
+    /**
+     * ✅ JdbcTemplate over the same pool without the 10 second query timeout, for DDL and
+     * maintenance statements that scan whole tables.
+     */
+    public JdbcTemplate getUntimedJdbcTemplate() {
+        getJdbcTemplateForCollege(null);
+        return untimedJdbcTemplate;
+    }
+
+    /**
+     * ✅ TransactionTemplate over the same pool, for writes that must run as one transaction.
+     */
+    public TransactionTemplate getTransactionTemplate() {
+        getJdbcTemplateForCollege(null);
+        return transactionTemplate;
+    }
+
+    /**
+     * ✅ Initialize the pooled JdbcTemplate exactly once, even when many requests arrive together.
+     */
+    private synchronized JdbcTemplate initializeJdbcTemplate() {
+        if (mainJdbcTemplate != null) {
+            return mainJdbcTemplate;
+        }
+
+        log.info("🔧 Initializing main JdbcTemplate");
+        HikariDataSource ds = null;
+        try {
+            ds = createDataSource(dbUrl);
+            // Test the connection before creating the JdbcTemplate
+            try (java.sql.Connection conn = ds.getConnection()) {
+                if (conn.isValid(5)) { // 5 second timeout
+                    log.info("✅ Database connection test successful");
+                } else {
+                    log.error("❌ Database connection test failed - connection is invalid");
+                    throw new RuntimeException("Database connection test failed");
                 }
+            }
 
-                mainJdbcTemplate = new JdbcTemplate(dataSource);
-                mainJdbcTemplate.setQueryTimeout(10); // 10 seconds timeout for queries
-                log.info("✅ Main database connection established.");
-            } catch (Exception e) {
-                log.error("❌ Failed to initialize main database connection: {}", e.getMessage(), e);
-                // Create a custom runtime exception that will be caught by the global exception handler
-                throw new RuntimeException("Failed to connect to database. Please check your database configuration.", e);
+            JdbcTemplate jdbc = new JdbcTemplate(ds);
+            jdbc.setQueryTimeout(10); // 10 seconds timeout for queries
+            dataSource = ds;
+            untimedJdbcTemplate = new JdbcTemplate(ds);
+            transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(ds));
+            mainJdbcTemplate = jdbc;
+            log.info("✅ Main database connection pool established (max {} connections).", maximumPoolSize);
+
+            tableCatalog.reload(jdbc);
+            htnoDirectory.load(jdbc);
+            return jdbc;
+        } catch (Exception e) {
+            if (ds != null) {
+                ds.close();
             }
+            log.error("❌ Failed to initialize main database connection: {}", e.getMessage(), e);
+            // Create a custom runtime exception that will be caught by the global exception handler
+            throw new RuntimeException("Failed to connect to database. Please check your database configuration.", e);
+        }
+    }
+
+    /**
+     * ✅ Create a pooled DataSource for the provided JDBC URL.
+     */
+    private HikariDataSource createDataSource(String jdbcUrl) {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName("results-db-pool");
+        config.setDriverClassName(driverClassName);
+        config.setJdbcUrl(jdbcUrl);
+        config.setUsername(dbUsername);
+        config.setPassword(dbPassword);
+        config.setMaximumPoolSize(maximumPoolSize);
+        config.setMinimumIdle(Math.min(minimumIdle, maximumPoolSize));
+        config.setIdleTimeout(idleTimeoutMs);
+        config.setMaxLifetime(maxLifetimeMs);
+        config.setConnectionTimeout(connectionTimeoutMs);
+        config.setValidationTimeout(validationTimeoutMs);
+
+        // Reuse server-side statement handles for the repeated queries on every page
+        config.addDataSourceProperty("cachePrepStmts", "true");
+        config.addDataSourceProperty("prepStmtCacheSize", "250");
+        config.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
+        // Send JDBC batches as multi-row statements instead of one round trip per row
+        config.addDataSourceProperty("rewriteBatchedStatements", "true");
+        // Allow LOAD DATA LOCAL INFILE for bulk uploads, but only from the bulk-load directory
+        try {
+            Path bulkDir = Files.createDirectories(Paths.get(bulkLoadDirectory)).toAbsolutePath();
+            config.addDataSourceProperty("allowLoadLocalInfileInPath", bulkDir.toString());
+        } catch (Exception e) {
+            log.warn("⚠️ Bulk-load directory {} is not usable, LOAD DATA uploads disabled: {}", bulkLoadDirectory, e.getMessage());
         }
-        return mainJdbcTemplate;
+
+        config.setMetricsTrackerFactory((poolName, poolStats) -> new IMetricsTracker() {
+            @Override
+            public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+                acquireCount.increment();
+                acquireNanosTotal.add(elapsedAcquiredNanos);
+                acquireNanosMax.accumulate(elapsedAcquiredNanos);
+            }
+
+            @Override
+            public void recordConnectionTimeout() {
+                acquireTimeouts.increment();
+            }
+        });
+        return new HikariDataSource(config);
     }
 
     /**
-     * Get the current college context
+     * ✅ Periodically reload the table catalog to pick up tables created outside the application,
+     * and copy any new or previously failed tables into the HTNO directory.
      */
-    public String getCurrentCollege() {
-        return currentCollege;
+    @Scheduled(initialDelayString = "${app.catalog.refresh-interval-ms:300000}",
+            fixedDelayString = "${app.catalog.refresh-interval-ms:300000}")
+    public void refreshTableCatalog() {
+        JdbcTemplate jdbc = mainJdbcTemplate;
+        if (jdbc != null) {
+            tableCatalog.reload(jdbc);
+            htnoDirectory.backfillNewTables(jdbc);
+        }
     }
 
     /**
-     * ✅ Create a new DataSource for the provided JDBC URL.
+     * ✅ Live statistics of the connection pool.
      */
-    private DataSource createDataSource(String jdbcUrl) {
-        DriverManagerDataSource ds = new DriverManagerDataSource();
-        ds.setDriverClassName(driverClassName);
-        ds.setUrl(jdbcUrl);
-        ds.setUsername(dbUsername);
-        ds.setPassword(dbPassword);
-        return ds;
+    public Map<String, Object> getPoolStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        HikariDataSource ds = dataSource;
+        HikariPoolMXBean pool = ds != null ? ds.getHikariPoolMXBean() : null;
+        if (pool == null) {
+            stats.put("initialized", false);
+            return stats;
+        }
+
+        long acquired = acquireCount.sum();
+        stats.put("initialized", true);
+        stats.put("activeConnections", pool.getActiveConnections());
+        stats.put("idleConnections", pool.getIdleConnections());
+        stats.put("totalConnections", pool.getTotalConnections());
+        stats.put("pendingThreads", pool.getThreadsAwaitingConnection());
+        stats.put("maximumPoolSize", ds.getMaximumPoolSize());
+        stats.put("connectionsAcquired", acquired);
+        stats.put("averageAcquireMillis", acquired == 0 ? 0.0 : acquireNanosTotal.sum() / (double) acquired / 1_000_000.0);
+        stats.put("maxAcquireMillis", acquireNanosMax.get() / 1_000_000.0);
+        stats.put("acquireTimeouts", acquireTimeouts.sum());
+        return stats;
     }
 
     /**
@@ -109,8 +287,7 @@ public class DynamicDatabaseService {
             String sanitizedTableName = sanitizeTableName(fullTableName);
 
             // First check if the table exists
-            List<String> tables = jdbc.queryForList("SHOW TABLES LIKE ?", String.class, fullTableName);
-            if (tables.isEmpty()) {
+            if (!tableCatalog.tableExists(fullTableName)) {
                 log.warn("⚠️ Table {} does not exist", fullTableName);
                 // Return an empty list but not List.of() to allow modifications
                 return new ArrayList<>();
@@ -128,6 +305,9 @@ public class DynamicDatabaseService {
                 // Check if the HTNO exists in the students table
                 String studentsTable = college.toLowerCase() + "_students";
                 String sanitizedStudentsTable = sanitizeTableName(studentsTable);
+                if (!tableCatalog.hasStudentsTable(college)) {
+                    return List.of();
+                }
                 try {
                     Integer studentExists = jdbc.queryForObject("SELECT COUNT(*) FROM " + sanitizedStudentsTable + " WHERE htno = ?", Integer.class, htno);
                     if (studentExists != null && studentExists > 0) {
@@ -180,8 +360,7 @@ public class DynamicDatabaseService {
             log.info("Getting all subjects from table {}", table);
 
             // First check if the table exists
-            List<String> tables = jdbc.queryForList("SHOW TABLES LIKE ?", String.class, table);
-            if (tables.isEmpty()) {
+            if (!tableCatalog.tableExists(table)) {
                 log.warn("⚠️ Table {} does not exist", table);
                 return new ArrayList<>();
             }
@@ -213,26 +392,18 @@ public class DynamicDatabaseService {
 
     /**
      * ✅ Get all colleges from the tables in the main database.
-     * This method extracts college names from table prefixes.
+     * College names are the table prefixes kept by the table catalog, which is
+     * updated whenever a table is created, so no query is needed here.
      */
     public List<String> getAllDatabases() {
         try {
-            JdbcTemplate jdbc = getJdbcTemplateForCollege(null);
-            List<String> tables = jdbc.queryForList("SHOW TABLES", String.class);
-
-            log.debug("Found {} tables in database: {}", tables.size(), tables);
-
-            // Extract college names from table prefixes
-            List<String> colleges = tables.stream()
-                    .map(table -> {
-                        int underscoreIndex = table.indexOf('_');
-                        return underscoreIndex > 0 ? table.substring(0, underscoreIndex) : null;
-                    })
-                    .filter(college -> college != null && !college.isEmpty() && !SYSTEM_DATABASES.contains(college))
-                    .distinct()
-                    .toList();
+            if (!tableCatalog.isLoaded()) {
+                // Initializing the connection also loads the catalog
+                getJdbcTemplateForCollege(null);
+            }
+            List<String> colleges = tableCatalog.getColleges();
 
-            log.info("Found {} colleges in database: {}", colleges.size(), colleges);
+            log.debug("Found {} colleges in database: {}", colleges.size(), colleges);
 
             // If no colleges found, add a default one
             if (colleges.isEmpty()) {
@@ -292,111 +463,41 @@ public class DynamicDatabaseService {
         List<String> availableSemesters = new ArrayList<>();
 
         try {
-            // Get all tables in the database
-            String collegePrefix = college.toLowerCase() + "_";
-            String tablePattern = collegePrefix + "results_" + department.toLowerCase() + "_%";
-
-            log.info("Looking for tables matching pattern: {}", tablePattern);
-            List<String> tables = jdbc.queryForList("SHOW TABLES LIKE ?", String.class, tablePattern);
-            log.info("Found {} tables matching pattern: {}", tables.size(), tables);
-
-            for (String table : tables) {
-                try {
-                    // Extract semester from table name
-                    String semesterPart = table.substring(table.lastIndexOf("_") + 1);
-                    String formattedSemester = semesterPart.replace("_", "-");
-
-                    // Sanitize table name for SQL query
-                    String sanitizedTable = sanitizeTableName(table);
-
-                    // Check if student has results in this semester
-                    String query = "SELECT COUNT(*) FROM " + sanitizedTable + " WHERE htno = ?";
-                    log.debug("Executing query: {} with HTNO: {}", query, htno);
-
-                    Integer count = jdbc.queryForObject(query, Integer.class, htno);
-                    log.debug("Count for HTNO {} in table {}: {}", htno, table, count);
-
-                    if (count != null && count > 0) {
-                        log.info("Adding semester {} for HTNO {} (table: {})", formattedSemester, htno, table);
-                        availableSemesters.add(formattedSemester);
-                    }
-                } catch (Exception e) {
-                    log.warn("Error checking table {}: {}", table, e.getMessage());
+            // Once loaded, the HTNO directory knows every semester the student has results for
+            if (htnoDirectory.isLoaded()) {
+                HtnoDirectory.Entry entry = htnoDirectory.lookup(htno);
+                if (entry != null && college.equalsIgnoreCase(entry.getCollege())) {
+                    availableSemesters.addAll(entry.getSemesters());
+                    log.info("Found semesters {} for HTNO {} in directory (department {})",
+                            availableSemesters, htno, entry.getDept());
                 }
+            } else {
+                findSemestersByTableScan(jdbc, college, department, htno, availableSemesters);
             }
 
-            // If no semesters found, try to find any semester where the student has results
-            if (availableSemesters.isEmpty()) {
-                log.info("No semesters found for HTNO {} in department {}. Trying all departments...", htno, department);
-
-                // Try all common departments
-                for (String dept : List.of("CSE", "CSD", "CSM", "ECE", "EEE", "MECH", "IT", "CIVIL", "CS")) {
-                    if (dept.equalsIgnoreCase(department)) continue; // Skip the one we already tried
-
-                    String deptTablePattern = collegePrefix + "results_" + dept.toLowerCase() + "_%";
-                    List<String> deptTables = jdbc.queryForList("SHOW TABLES LIKE ?", String.class, deptTablePattern);
-
-                    for (String table : deptTables) {
-                        try {
-                            // Extract semester from table name
-                            String semesterPart = table.substring(table.lastIndexOf("_") + 1);
-                            String formattedSemester = semesterPart.replace("_", "-");
-
-                            // Sanitize table name for SQL query
-                            String sanitizedTable = sanitizeTableName(table);
-
-                            // Check if student has results in this semester
-                            Integer count = jdbc.queryForObject("SELECT COUNT(*) FROM " + sanitizedTable + " WHERE htno = ?", Integer.class, htno);
-                            if (count != null && count > 0) {
-                                log.info("Found semester {} for HTNO {} in department {} (table: {})", formattedSemester, htno, dept, table);
-                                availableSemesters.add(formattedSemester);
-                            }
-                        } catch (Exception e) {
-                            // Skip this table
-                        }
-                    }
-
-                    if (!availableSemesters.isEmpty()) {
-                        break; // Stop once we find results in any department
-                    }
-                }
-            }
-
-            // Also check for SGPA/CGPA data in the grades table
+            // Also check for SGPA/CGPA data in the grades table (one row fetch for all sem_* columns)
             try {
                 String gradesTable = college.toLowerCase() + "_grades_" + department.toLowerCase();
-                List<String> gradesTables = jdbc.queryForList("SHOW TABLES LIKE ?", String.class, gradesTable);
 
-                if (!gradesTables.isEmpty()) {
+                if (tableCatalog.hasGradesTable(college, department)) {
                     log.info("Found grades table: {}", gradesTable);
                     String sanitizedTable = sanitizeTableName(gradesTable);
 
-                    // Get all columns that start with sem_
-                    List<String> columns = jdbc.queryForList(
-                        "SELECT COLUMN_NAME FROM INFORMATION_SCHEMA.COLUMNS " +
-                        "WHERE TABLE_NAME = ? AND COLUMN_NAME LIKE 'sem_%'",
-                        String.class, gradesTable);
+                    List<Map<String, Object>> rows = jdbc.queryForList(
+                            "SELECT * FROM " + sanitizedTable + " WHERE htno = ? LIMIT 1", htno);
 
-                    log.info("Found {} semester columns in grades table: {}", columns.size(), columns);
-
-                    // Check each semester column for this student
-                    for (String column : columns) {
-                        try {
-                            String semesterPart = column.substring(4); // Remove 'sem_' prefix
-                            String formattedSemester = semesterPart.replace("_", "-");
-
-                            // Check if student has SGPA for this semester
-                            String query = "SELECT " + column + " FROM " + sanitizedTable + " WHERE htno = ?";
-                            Double sgpa = jdbc.queryForObject(query, Double.class, htno);
-
-                            if (sgpa != null && sgpa > 0) {
+                    if (!rows.isEmpty()) {
+                        for (Map.Entry<String, Object> column : rows.get(0).entrySet()) {
+                            String name = column.getKey().toLowerCase();
+                            if (!name.startsWith("sem_") || !(column.getValue() instanceof Number)) {
+                                continue;
+                            }
+                            double sgpa = ((Number) column.getValue()).doubleValue();
+                            String formattedSemester = name.substring(4).replace("_", "-"); // Remove 'sem_' prefix
+                            if (sgpa > 0 && !availableSemesters.contains(formattedSemester)) {
                                 log.info("Found SGPA {} for semester {} for HTNO {}", sgpa, formattedSemester, htno);
-                                if (!availableSemesters.contains(formattedSemester)) {
-                                    availableSemesters.add(formattedSemester);
-                                }
+                                availableSemesters.add(formattedSemester);
                             }
-                        } catch (Exception e) {
-                            log.debug("Error checking SGPA for column {}: {}", column, e.getMessage());
                         }
                     }
                 }
@@ -412,6 +513,95 @@ public class DynamicDatabaseService {
         }
     }
 
+    /**
+     * Find the semesters of a student by probing the results tables, used until the HTNO directory is loaded.
+     * Each step is a single UNION ALL query over the catalogued tables instead of one COUNT(*) per table.
+     */
+    private void findSemestersByTableScan(JdbcTemplate jdbc, String college, String department, String htno,
+                                          List<String> availableSemesters) {
+        // Get the results tables of the department from the catalog
+        List<String> tables = tableCatalog.getResultTables(college, department);
+        log.info("Found {} results tables for {} {}: {}", tables.size(), college, department, tables);
+
+        for (String table : findTablesContainingHtno(jdbc, tables, htno)) {
+            String formattedSemester = semesterOfTable(table);
+            log.info("Adding semester {} for HTNO {} (table: {})", formattedSemester, htno, table);
+            availableSemesters.add(formattedSemester);
+        }
+
+        // If no semesters found, try to find any semester where the student has results
+        if (availableSemesters.isEmpty()) {
+            log.info("No semesters found for HTNO {} in department {}. Trying all departments...", htno, department);
+
+            // Common departments first, in the order they were always tried, then anything else in the catalog
+            List<String> departments = new ArrayList<>();
+            for (String dept : List.of("CSE", "CSD", "CSM", "ECE", "EEE", "MECH", "IT", "CIVIL", "CS")) {
+                departments.add(dept.toLowerCase());
+            }
+            for (String dept : tableCatalog.getResultDepartments(college)) {
+                if (!departments.contains(dept)) {
+                    departments.add(dept);
+                }
+            }
+
+            Map<String, List<String>> tablesByDept = new LinkedHashMap<>();
+            List<String> otherTables = new ArrayList<>();
+            for (String dept : departments) {
+                if (dept.equalsIgnoreCase(department)) continue; // Skip the one we already tried
+                List<String> deptTables = tableCatalog.getResultTables(college, dept);
+                if (!deptTables.isEmpty()) {
+                    tablesByDept.put(dept, deptTables);
+                    otherTables.addAll(deptTables);
+                }
+            }
+
+            Set<String> found = new HashSet<>(findTablesContainingHtno(jdbc, otherTables, htno));
+
+            // Stop at the first department with results
+            for (Map.Entry<String, List<String>> dept : tablesByDept.entrySet()) {
+                for (String table : dept.getValue()) {
+                    if (found.contains(table)) {
+                        String formattedSemester = semesterOfTable(table);
+                        log.info("Found semester {} for HTNO {} in department {} (table: {})",
+                                formattedSemester, htno, dept.getKey(), table);
+                        availableSemesters.add(formattedSemester);
+                    }
+                }
+                if (!availableSemesters.isEmpty()) {
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Return the tables, in the given order, that have at least one row for the HTNO, using a
+     * single UNION ALL query of EXISTS probes.
+     */
+    private List<String> findTablesContainingHtno(JdbcTemplate jdbc, List<String> tables, String htno) {
+        if (tables.isEmpty()) {
+            return List.of();
+        }
+        StringBuilder sql = new StringBuilder();
+        for (int i = 0; i < tables.size(); i++) {
+            if (i > 0) {
+                sql.append(" UNION ALL ");
+            }
+            sql.append("SELECT ").append(i).append(" AS idx FROM DUAL WHERE EXISTS (SELECT 1 FROM ")
+                    .append(sanitizeTableName(tables.get(i))).append(" WHERE htno = ?)");
+        }
+        log.debug("Probing {} results tables for HTNO {} in one query", tables.size(), htno);
+
+        try {
+            List<Integer> hits = jdbc.queryForList(sql.toString(), Integer.class, Collections.nCopies(tables.size(), htno).toArray());
+            Collections.sort(hits);
+            return hits.stream().map(tables::get).toList();
+        } catch (Exception e) {
+            log.warn("Error probing results tables for HTNO {}: {}", htno, e.getMessage());
+            return List.of();
+        }
+    }
+
     /**
      * ✅ Check if a student exists in the students table
      */
@@ -422,8 +612,7 @@ public class DynamicDatabaseService {
 
         try {
             // First check if the table exists
-            List<String> tables = jdbc.queryForList("SHOW TABLES LIKE ?", String.class, tableName);
-            if (tables.isEmpty()) {
+            if (!tableCatalog.hasStudentsTable(college)) {
                 log.debug("Table {} does not exist", tableName);
                 return false;
             }
@@ -436,4 +625,13 @@ public class DynamicDatabaseService {
             return false;
         }
     }
+
+    /**
+     * Extract the semester ("1-1") from a results table name ending in "_1_1".
+     */
+    private String semesterOfTable(String table) {
+        int last = table.lastIndexOf('_');
+        int previous = table.lastIndexOf('_', last - 1);
+        return table.substring(previous + 1).replace("_", "-");
+    }
 }
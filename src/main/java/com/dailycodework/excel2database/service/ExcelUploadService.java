@@ -2,18 +2,32 @@ package com.dailycodework.excel2database.service;
 
 import com.dailycodework.excel2database.domain.Subject;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.xssf.usermodel.XSSFSheet;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.poi.ooxml.util.SAXHelper;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.util.NumberToTextConverter;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFComment;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
 
-import java.io.IOException;
+import java.io.File;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Objects;
+import java.util.function.Consumer;
 
 @Service
 @Slf4j
@@ -23,94 +37,151 @@ public class ExcelUploadService {
         return Objects.equals(file.getContentType(), "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
     }
 
+    /**
+     * ✅ Read all subjects of the first sheet into a list.
+     */
     public List<Subject> getSubjectsDataFromExcel(InputStream inputStream) {
         List<Subject> subjects = new ArrayList<>();
+        streamSubjectsFromExcel(inputStream, subjects::add);
+        return subjects;
+    }
 
-        try (XSSFWorkbook workbook = new XSSFWorkbook(inputStream)) {
-            XSSFSheet sheet = workbook.getSheetAt(0);
-
-            // Start reading from row 1 (second row), skipping the first row (header)
-            int rowIndex = 0;
-            for (Row row : sheet) {
-                if (rowIndex == 0) { // Skip the first row (header)
-                    rowIndex++;
-                    continue;
+    /**
+     * ✅ Stream the subjects of the first sheet to a consumer, one row at a time.
+     *
+     * Uses POI's event model (XSSFReader + SAX) instead of loading the workbook into an
+     * XSSFWorkbook, so memory use does not grow with the number of rows. The upload is
+     * spooled to a temporary file because opening a package from a stream buffers the
+     * whole zip in memory. Returns the number of rows passed to the consumer.
+     */
+    public int streamSubjectsFromExcel(InputStream inputStream, Consumer<Subject> consumer) {
+        Path tempFile = null;
+        try {
+            tempFile = Files.createTempFile("results-upload-", ".xlsx");
+            Files.copy(inputStream, tempFile, StandardCopyOption.REPLACE_EXISTING);
+            return streamSubjectsFromExcel(tempFile.toFile(), consumer);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("Error reading Excel file: {}", e.getMessage());
+            throw new RuntimeException("Failed to process Excel file", e);
+        } finally {
+            if (tempFile != null) {
+                try {
+                    Files.deleteIfExists(tempFile);
+                } catch (Exception e) {
+                    log.warn("Could not delete temporary upload file {}: {}", tempFile, e.getMessage());
                 }
+            }
+        }
+    }
 
-                Iterator<Cell> cellIterator = row.iterator();
-                Subject subject = new Subject();
-                int cellIndex = 0;
-
-                while (cellIterator.hasNext()) {
-                    Cell cell = cellIterator.next();
-
-                    switch (cellIndex) {
-                        case 0 -> {
-                            if (cell.getCellType() == CellType.NUMERIC) {
-                                subject.setSno((int) cell.getNumericCellValue());  // Subject number
-                            } else {
-                                log.warn("Expected numeric value for sno but found a non-numeric value.");
-                            }
-                        }
-                        case 1 -> {
-                            if (cell.getCellType() == CellType.STRING) {
-                                subject.setHtno(cell.getStringCellValue());  // Htno (roll number)
-                            } else {
-                                log.warn("Expected string value for htno but found a non-string value.");
-                            }
-                        }
-                        case 2 -> {
-                            if (cell.getCellType() == CellType.STRING) {
-                                subject.setSubcode(cell.getStringCellValue());  // Subcode
-                            } else {
-                                log.warn("Expected string value for subcode but found a non-string value.");
-                            }
-                        }
-                        case 3 -> {
-                            if (cell.getCellType() == CellType.STRING) {
-                                subject.setSubname(cell.getStringCellValue());  // Subname
-                            } else {
-                                log.warn("Expected string value for subname but found a non-string value.");
-                            }
-                        }
-                        case 4 -> {
-                            if (cell.getCellType() == CellType.NUMERIC) {
-                                subject.setInternals((int) cell.getNumericCellValue());  // Internals
-                            } else {
-                                log.warn("Expected numeric value for internals but found a non-numeric value.");
-                            }
-                        }
-                        case 5 -> {
-                            if (cell.getCellType() == CellType.STRING) {
-                                subject.setGrade(cell.getStringCellValue());  // Grade
-                            } else {
-                                log.warn("Expected string value for grade but found a non-string value.");
-                            }
-                        }
-                        case 6 -> {
-                            if (cell.getCellType() == CellType.NUMERIC) {
-                                subject.setCredit((double) cell.getNumericCellValue());  // Credit
-                            } else {
-                                log.warn("Expected numeric value for credit but found a non-numeric value.");
-                            }
-                        }
-                        default -> log.warn("Unexpected column index: {}", cellIndex);
-                    }
-
-                    cellIndex++;
-                }
+    /**
+     * ✅ Stream the subjects of the first sheet of an .xlsx file to a consumer.
+     */
+    public int streamSubjectsFromExcel(File file, Consumer<Subject> consumer) {
+        try (OPCPackage pkg = OPCPackage.open(file, PackageAccess.READ)) {
+            XSSFReader reader = new XSSFReader(pkg);
+            ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg);
+            StylesTable styles = reader.getStylesTable();
 
-                // Skip subjects where sno is 0
-                if (subject.getSno() != 0) {
-                    subjects.add(subject);
-                }
+            Iterator<InputStream> sheets = reader.getSheetsData();
+            if (!sheets.hasNext()) {
+                log.warn("Excel file has no sheets");
+                return 0;
+            }
 
+            SubjectRowHandler rowHandler = new SubjectRowHandler(consumer);
+            try (InputStream sheet = sheets.next()) {
+                XMLReader parser = SAXHelper.newXMLReader();
+                parser.setContentHandler(new XSSFSheetXMLHandler(styles, strings, rowHandler, new RawNumberFormatter(), false));
+                parser.parse(new InputSource(sheet));
             }
-        } catch (IOException e) {
+            log.info("Read {} subject rows from Excel file", rowHandler.emitted);
+            return rowHandler.emitted;
+        } catch (Exception e) {
             log.error("Error reading Excel file: {}", e.getMessage());
             throw new RuntimeException("Failed to process Excel file", e);
         }
+    }
 
-        return subjects;
+    /**
+     * Passes numeric cells on as their stored value instead of their display text, so a "0" format
+     * does not round a 1.5 credit to 2 and "#,##0" does not turn 1234 into "1,234".
+     */
+    private static final class RawNumberFormatter extends DataFormatter {
+        @Override
+        public String formatRawCellContents(double value, int formatIndex, String formatString, boolean use1904Windowing) {
+            return NumberToTextConverter.toText(value);
+        }
+    }
+
+    /**
+     * Builds one Subject per sheet row. Columns are taken from the cell reference
+     * (A = sno, B = htno, C = subcode, D = subname, E = internals, F = grade, G = credit),
+     * so an empty cell does not shift the following columns.
+     */
+    private static final class SubjectRowHandler implements XSSFSheetXMLHandler.SheetContentsHandler {
+
+        private final Consumer<Subject> consumer;
+        private Subject subject;
+        private int emitted;
+
+        private SubjectRowHandler(Consumer<Subject> consumer) {
+            this.consumer = consumer;
+        }
+
+        @Override
+        public void startRow(int rowNum) {
+            // Skip the first row (header)
+            subject = rowNum == 0 ? null : new Subject();
+        }
+
+        @Override
+        public void endRow(int rowNum) {
+            // Skip subjects where sno is 0
+            if (subject != null && subject.getSno() != 0) {
+                consumer.accept(subject);
+                emitted++;
+            }
+            subject = null;
+        }
+
+        @Override
+        public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+            if (subject == null || formattedValue == null || cellReference == null) {
+                return;
+            }
+            int cellIndex = new CellReference(cellReference).getCol();
+
+            switch (cellIndex) {
+                case 0 -> {
+                    Double sno = parseNumber(formattedValue, "sno");
+                    if (sno != null) subject.setSno(sno.intValue());  // Subject number
+                }
+                case 1 -> subject.setHtno(formattedValue);  // Htno (roll number)
+                case 2 -> subject.setSubcode(formattedValue);  // Subcode
+                case 3 -> subject.setSubname(formattedValue);  // Subname
+                case 4 -> {
+                    Double internals = parseNumber(formattedValue, "internals");
+                    if (internals != null) subject.setInternals(internals.intValue());  // Internals
+                }
+                case 5 -> subject.setGrade(formattedValue);  // Grade
+                case 6 -> {
+                    Double credit = parseNumber(formattedValue, "credit");
+                    if (credit != null) subject.setCredit(credit);  // Credit
+                }
+                default -> log.warn("Unexpected column index: {}", cellIndex);
+            }
+        }
+
+        private static Double parseNumber(String value, String column) {
+            try {
+                return Double.parseDouble(value.trim());
+            } catch (NumberFormatException e) {
+                log.warn("Expected numeric value for {} but found a non-numeric value.", column);
+                return null;
+            }
+        }
     }
 }
@@ -0,0 +1,140 @@
+package com.dailycodework.excel2database.service;
+
+import com.dailycodework.excel2database.util.GradeUtil;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * ✅ Grade histogram, pass rate and average internals of every subject in a results table.
+ *
+ * Each table is aggregated with a single GROUP BY subcode, grade, which can use the
+ * (subcode, grade) index. The result is cached with the table's version from
+ * {@link TableCatalog}, which uploads bump, so a dashboard viewed over and over only
+ * rescans a table after new results have been written to it.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class GradeAnalyticsService {
+
+    private final DynamicDatabaseService dynamicDbService;
+    private final TableCatalog tableCatalog;
+
+    // Results table -> distribution at a table version
+    private final Map<String, Cached> cache = new ConcurrentHashMap<>();
+
+    /**
+     * ✅ Distribution per subject for a department and semester. All colleges are combined when college is null.
+     */
+    public List<SubjectDistribution> getDistribution(String college, String dept, String semester) {
+        String suffix = "_results_" + dept.toLowerCase() + "_" + semester.replace("-", "_");
+        List<String> colleges = college == null || college.isBlank() ? tableCatalog.getColleges() : List.of(college.toLowerCase());
+
+        Map<String, SubjectDistribution> combined = new TreeMap<>();
+        for (String c : colleges) {
+            String tableName = c + suffix;
+            if (!tableCatalog.tableExists(tableName)) {
+                continue;
+            }
+            for (SubjectDistribution subject : distributionOf(c, tableName)) {
+                combined.merge(subject.getSubcode(), subject, SubjectDistribution::plus);
+            }
+        }
+        return List.copyOf(combined.values());
+    }
+
+    private List<SubjectDistribution> distributionOf(String college, String tableName) {
+        // Read the version first: a write that lands while we aggregate makes the entry stale, not wrong
+        long version = tableCatalog.getVersion(tableName);
+        Cached cached = cache.get(tableName);
+        if (cached != null && cached.version == version) {
+            return cached.subjects;
+        }
+
+        JdbcTemplate jdbc = dynamicDbService.getJdbcTemplateForCollege(college);
+        long start = System.currentTimeMillis();
+        Map<String, SubjectDistribution> subjects = new TreeMap<>();
+        jdbc.query("SELECT subcode, MAX(subname) AS subname, grade, COUNT(*) AS students, " +
+                "SUM(internals) AS internals_sum, COUNT(internals) AS internals_count " +
+                "FROM " + dynamicDbService.sanitizeTableName(tableName) +
+                " WHERE subcode IS NOT NULL GROUP BY subcode, grade", rs -> {
+            String subcode = rs.getString("subcode");
+            SubjectDistribution subject = subjects.computeIfAbsent(subcode,
+                    s -> new SubjectDistribution(s, null, emptyHistogram(), 0, 0, 0, 0));
+            if (subject.subname == null) {
+                subject.subname = rs.getString("subname");
+            }
+            long students = rs.getLong("students");
+            byte code = GradeUtil.parse(rs.getString("grade"));
+            // Grades are normalised here, so "a+" and "A+ " end up in the same bucket
+            String label = code == GradeUtil.UNKNOWN ? "OTHER" : GradeUtil.label(code);
+            subject.grades.merge(label, students, Long::sum);
+            subject.students += students;
+            if (GradeUtil.points(code) > 0) {
+                subject.passed += students;
+            }
+            subject.internalsSum += rs.getLong("internals_sum");
+            subject.internalsCount += rs.getLong("internals_count");
+        });
+
+        List<SubjectDistribution> result = List.copyOf(subjects.values());
+        cache.put(tableName, new Cached(version, result));
+        log.debug("Aggregated grades of {} in {} ms", tableName, System.currentTimeMillis() - start);
+        return result;
+    }
+
+    /**
+     * Every grade with a zero count, in grade order, so histograms line up across subjects.
+     */
+    private static Map<String, Long> emptyHistogram() {
+        Map<String, Long> grades = new LinkedHashMap<>();
+        for (byte code = 0; code < GradeUtil.gradeCount(); code++) {
+            grades.put(GradeUtil.label(code), 0L);
+        }
+        return grades;
+    }
+
+    @AllArgsConstructor
+    private static final class Cached {
+        private final long version;
+        private final List<SubjectDistribution> subjects;
+    }
+
+    /**
+     * Grades of one subject. Not modified once cached; {@link #plus} returns a new instance.
+     */
+    @Getter
+    @AllArgsConstructor
+    public static final class SubjectDistribution {
+        private final String subcode;
+        private String subname;
+        private final Map<String, Long> grades;
+        private long students;
+        private long passed;
+        private long internalsSum;
+        private long internalsCount;
+
+        public double getPassRate() {
+            return students == 0 ? 0.0 : GradeUtil.round2(100.0 * passed / students);
+        }
+
+        public double getAverageInternals() {
+            return internalsCount == 0 ? 0.0 : GradeUtil.round2((double) internalsSum / internalsCount);
+        }
+
+        SubjectDistribution plus(SubjectDistribution other) {
+            Map<String, Long> grades = new LinkedHashMap<>(this.grades);
+            other.grades.forEach((grade, count) -> grades.merge(grade, count, Long::sum));
+            return new SubjectDistribution(subcode, subname != null ? subname : other.subname, grades,
+                    students + other.students, passed + other.passed,
+                    internalsSum + other.internalsSum, internalsCount + other.internalsCount);
+        }
+    }
+}
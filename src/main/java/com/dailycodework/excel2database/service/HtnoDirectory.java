@@ -0,0 +1,271 @@
+package com.dailycodework.excel2database.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * ✅ Global directory mapping each HTNO to its college, department and the semesters
+ * it has results for.
+ *
+ * The directory is stored in the htno_directory table and mirrored in memory, so
+ * finding a student's college or department is a single map lookup instead of a
+ * scan over every college's students and results tables. It is kept up to date by
+ * result uploads and student registration.
+ *
+ * Every students or results table copied into the directory is recorded in
+ * htno_directory_sources, so a backfill that failed halfway, or a table created outside
+ * the application, is picked up on the next catalog refresh. The directory only counts
+ * as complete once every known table has been copied.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class HtnoDirectory {
+
+    public static final String TABLE_NAME = "htno_directory";
+    public static final String SOURCES_TABLE = "htno_directory_sources";
+
+    private static final List<String> SEMESTERS = List.of("1_1", "1_2", "2_1", "2_2", "3_1", "3_2", "4_1", "4_2");
+    private static final int BATCH_SIZE = 1000;
+
+    // Semesters are only merged for the student's own college and department;
+    // the first department seen is kept. semesters is assigned first because it reads the old dept.
+    private static final String UPSERT_RESULTS = "ON DUPLICATE KEY UPDATE " +
+            "semesters = IF(college = VALUES(college) AND (dept IS NULL OR dept = VALUES(dept)), " +
+            "semesters | VALUES(semesters), semesters), " +
+            "dept = IF(college = VALUES(college) AND dept IS NULL, VALUES(dept), dept)";
+
+    private final TableCatalog tableCatalog;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private volatile boolean loaded;
+
+    /**
+     * Directory entry for a single HTNO. Immutable; updates replace the entry.
+     */
+    @Getter
+    @AllArgsConstructor
+    public static final class Entry {
+        private final String college;
+        private final String dept;
+        private final int semesterMask;
+
+        public boolean hasSemester(String semester) {
+            int bit = semesterBit(semester);
+            return bit >= 0 && (semesterMask & (1 << bit)) != 0;
+        }
+
+        /**
+         * Semesters with results, formatted as "1-1", "1-2", ...
+         */
+        public List<String> getSemesters() {
+            List<String> semesters = new ArrayList<>();
+            for (int i = 0; i < SEMESTERS.size(); i++) {
+                if ((semesterMask & (1 << i)) != 0) {
+                    semesters.add(SEMESTERS.get(i).replace("_", "-"));
+                }
+            }
+            return semesters;
+        }
+    }
+
+    /**
+     * ✅ Create the directory table if needed, backfill it from any table not copied yet,
+     * and load it into memory.
+     */
+    public synchronized void load(JdbcTemplate jdbc) {
+        try {
+            jdbc.execute("CREATE TABLE IF NOT EXISTS " + TABLE_NAME + " (" +
+                    "htno VARCHAR(100) PRIMARY KEY, " +
+                    "college VARCHAR(100) NOT NULL, " +
+                    "dept VARCHAR(20), " +
+                    "semesters SMALLINT NOT NULL DEFAULT 0)");
+            jdbc.execute("CREATE TABLE IF NOT EXISTS " + SOURCES_TABLE + " (" +
+                    "source_table VARCHAR(150) PRIMARY KEY, " +
+                    "backfilled_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP)");
+            tableCatalog.register(TABLE_NAME);
+            tableCatalog.register(SOURCES_TABLE);
+
+            boolean complete = backfill(jdbc);
+            reloadEntries(jdbc);
+            loaded = complete;
+            log.info("📇 HTNO directory loaded with {} students{}", entries.size(),
+                    complete ? "" : ", some tables still to backfill");
+        } catch (Exception e) {
+            log.error("❌ Could not load HTNO directory, falling back to table scans: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * ✅ Copy tables that appeared since the last load, e.g. created outside the application or
+     * skipped by a failed backfill. Called after every catalog refresh.
+     */
+    public synchronized void backfillNewTables(JdbcTemplate jdbc) {
+        if (!tableCatalog.tableExists(SOURCES_TABLE)) {
+            return;
+        }
+        try {
+            Set<String> done = backfilledSources(jdbc);
+            if (pendingSources(done).isEmpty()) {
+                loaded = true;
+                return;
+            }
+            boolean complete = backfill(jdbc);
+            reloadEntries(jdbc);
+            loaded = complete;
+        } catch (Exception e) {
+            log.warn("⚠️ Could not backfill HTNO directory: {}", e.getMessage());
+        }
+    }
+
+    private void reloadEntries(JdbcTemplate jdbc) {
+        Map<String, Entry> loadedEntries = new HashMap<>();
+        jdbc.query("SELECT htno, college, dept, semesters FROM " + TABLE_NAME, rs -> {
+            loadedEntries.put(key(rs.getString("htno")),
+                    new Entry(rs.getString("college"), rs.getString("dept"), rs.getInt("semesters")));
+        });
+        // Directory rows are never deleted, so merging keeps entries recorded by uploads during the read
+        entries.putAll(loadedEntries);
+    }
+
+    /**
+     * ✅ Fill the directory from the students and results tables not copied yet, and record each one
+     * that succeeds. Students tables come first so a registered student keeps the college they signed
+     * up with, the same order the old table scan used. Returns whether every table is now copied.
+     */
+    private boolean backfill(JdbcTemplate jdbc) {
+        List<String[]> pending = pendingSources(backfilledSources(jdbc));
+        if (pending.isEmpty()) {
+            return true;
+        }
+        log.info("Backfilling HTNO directory from {} tables", pending.size());
+        // Copying a large table can take longer than the shared template's query timeout
+        JdbcTemplate untimed = new JdbcTemplate(Objects.requireNonNull(jdbc.getDataSource()));
+        boolean complete = true;
+        for (String[] source : pending) {
+            String table = source[0];
+            try {
+                if (source.length == 2) {
+                    untimed.update("INSERT INTO " + TABLE_NAME + " (htno, college, semesters) " +
+                            "SELECT htno, ?, 0 FROM `" + table + "` WHERE htno IS NOT NULL " +
+                            "ON DUPLICATE KEY UPDATE htno = htno", source[1]);
+                } else {
+                    untimed.update("INSERT INTO " + TABLE_NAME + " (htno, college, dept, semesters) " +
+                            "SELECT DISTINCT htno, ?, ?, ? FROM `" + table + "` WHERE htno IS NOT NULL " +
+                            UPSERT_RESULTS, source[1], source[2].toUpperCase(), 1 << semesterBit(source[3]));
+                }
+                jdbc.update("INSERT IGNORE INTO " + SOURCES_TABLE + " (source_table) VALUES (?)", table);
+            } catch (Exception e) {
+                complete = false;
+                log.warn("⚠️ Could not backfill HTNO directory from {}, will retry: {}", table, e.getMessage());
+            }
+        }
+        return complete;
+    }
+
+    private Set<String> backfilledSources(JdbcTemplate jdbc) {
+        return new HashSet<>(jdbc.queryForList("SELECT source_table FROM " + SOURCES_TABLE, String.class));
+    }
+
+    /**
+     * Tables not copied yet, students tables first: {table, college} or {table, college, dept, semester}.
+     */
+    private List<String[]> pendingSources(Set<String> done) {
+        List<String[]> pending = new ArrayList<>();
+        for (String college : tableCatalog.getColleges()) {
+            String studentsTable = college.toLowerCase() + "_students";
+            if (tableCatalog.hasStudentsTable(college) && !done.contains(studentsTable)) {
+                pending.add(new String[]{studentsTable, college});
+            }
+        }
+        for (String college : tableCatalog.getColleges()) {
+            for (String dept : tableCatalog.getResultDepartments(college)) {
+                for (String sem : tableCatalog.getResultSemesters(college, dept)) {
+                    String table = college.toLowerCase() + "_results_" + dept + "_" + sem;
+                    if (!done.contains(table)) {
+                        pending.add(new String[]{table, college, dept, sem});
+                    }
+                }
+            }
+        }
+        return pending;
+    }
+
+    /**
+     * ✅ Record that the given students have results for a department and semester.
+     */
+    public void recordResults(JdbcTemplate jdbc, String college, String dept, String semester, Collection<String> htnos) {
+        int bit = semesterBit(semester);
+        if (bit < 0 || htnos.isEmpty()) {
+            return;
+        }
+        int mask = 1 << bit;
+        String deptName = dept.toUpperCase();
+        List<String> distinct = htnos.stream().filter(Objects::nonNull).distinct().toList();
+
+        String sql = "INSERT INTO " + TABLE_NAME + " (htno, college, dept, semesters) VALUES (?, ?, ?, ?) " + UPSERT_RESULTS;
+        for (int from = 0; from < distinct.size(); from += BATCH_SIZE) {
+            List<String> chunk = distinct.subList(from, Math.min(from + BATCH_SIZE, distinct.size()));
+            jdbc.batchUpdate(sql, chunk, chunk.size(), (ps, htno) -> {
+                ps.setString(1, htno);
+                ps.setString(2, college);
+                ps.setString(3, deptName);
+                ps.setInt(4, mask);
+            });
+        }
+
+        for (String htno : distinct) {
+            entries.merge(key(htno), new Entry(college, deptName, mask), (old, added) -> {
+                if (old.getCollege().equalsIgnoreCase(college)
+                        && (old.getDept() == null || old.getDept().equalsIgnoreCase(deptName))) {
+                    return new Entry(old.getCollege(), deptName, old.getSemesterMask() | mask);
+                }
+                return old;
+            });
+        }
+    }
+
+    /**
+     * ✅ Record the college a student registered with.
+     */
+    public void recordRegistration(JdbcTemplate jdbc, String college, String htno) {
+        jdbc.update("INSERT INTO " + TABLE_NAME + " (htno, college, semesters) VALUES (?, ?, 0) " +
+                "ON DUPLICATE KEY UPDATE college = VALUES(college)", htno, college);
+        entries.merge(key(htno), new Entry(college, null, 0),
+                (old, added) -> new Entry(college, old.getDept(), old.getSemesterMask()));
+    }
+
+    /**
+     * ✅ Look up a student. Returns null if the HTNO is unknown.
+     */
+    public Entry lookup(String htno) {
+        return htno == null ? null : entries.get(key(htno));
+    }
+
+    /**
+     * Whether every known table has been copied into the directory; until then callers must fall
+     * back to table scans.
+     */
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    static int semesterBit(String semester) {
+        return semester == null ? -1 : SEMESTERS.indexOf(semester.replace("-", "_"));
+    }
+
+    private static String key(String htno) {
+        return htno.trim().toUpperCase();
+    }
+}
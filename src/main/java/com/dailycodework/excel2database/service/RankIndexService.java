@@ -0,0 +1,204 @@
+package com.dailycodework.excel2database.service;
+
+import com.dailycodework.excel2database.util.GradeUtil;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+/**
+ * ✅ Class rank and percentile of a student's SGPA within their (college, dept, semester).
+ *
+ * Each semester's SGPAs are held as a sorted double[] plus the roll numbers in sorted
+ * order with their SGPA in a parallel array. A query is two binary searches: one to find
+ * the student's SGPA, one to count how many students scored higher. The index of a
+ * department is rebuilt from its grades table in one pass after {@link SgpaService} writes SGPAs.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RankIndexService {
+
+    private static final String[] SEMESTERS = {"1_1", "1_2", "2_1", "2_2", "3_1", "3_2", "4_1", "4_2"};
+
+    private final DynamicDatabaseService dynamicDbService;
+    private final TableCatalog tableCatalog;
+
+    // "college/dept/semester" -> index
+    private final Map<String, SemesterIndex> indexes = new ConcurrentHashMap<>();
+
+    // "college/dept" -> first load of the department since startup, shared by the requests that wait for it
+    private final Map<String, CompletableFuture<Void>> firstLoads = new ConcurrentHashMap<>();
+
+    /**
+     * ✅ Rank of a student's SGPA in a semester, or null if they have no SGPA there.
+     */
+    public Rank getRank(String college, String dept, String semester, String htno) {
+        String c = college.toLowerCase();
+        String d = dept.toLowerCase();
+        awaitFirstLoad(c, d);
+        SemesterIndex index = indexes.get(c + "/" + d + "/" + semester.replace("-", "_"));
+        return index == null ? null : index.rank(htno);
+    }
+
+    /**
+     * Load a department on its first read. Only the first caller scans the grades table; the
+     * others wait on its future. A failed load is forgotten so the next read tries again.
+     */
+    private void awaitFirstLoad(String college, String dept) {
+        String key = college + "/" + dept;
+        CompletableFuture<Void> created = new CompletableFuture<>();
+        CompletableFuture<Void> load = firstLoads.putIfAbsent(key, created);
+        if (load != null) {
+            try {
+                load.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+            }
+            return;
+        }
+        try {
+            refresh(college, dept);
+            created.complete(null);
+        } catch (RuntimeException e) {
+            firstLoads.remove(key, created);
+            created.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * ✅ Rebuild the indexes of every semester of a department from its grades table.
+     */
+    public void refresh(String college, String dept) {
+        String c = college.toLowerCase();
+        String d = dept.toLowerCase();
+        String gradesTableName = c + "_grades_" + d;
+        if (!tableCatalog.tableExists(gradesTableName)) {
+            markLoaded(c, d);
+            return;
+        }
+
+        JdbcTemplate jdbc = dynamicDbService.getJdbcTemplateForCollege(college);
+        StringBuilder columns = new StringBuilder("htno");
+        for (String semester : SEMESTERS) {
+            columns.append(", sem_").append(semester);
+        }
+
+        List<String> htnos = new ArrayList<>();
+        List<double[]> rows = new ArrayList<>();
+        jdbc.query("SELECT " + columns + " FROM " + dynamicDbService.sanitizeTableName(gradesTableName), rs -> {
+            double[] row = new double[SEMESTERS.length];
+            for (int i = 0; i < SEMESTERS.length; i++) {
+                double sgpa = rs.getDouble(i + 2);
+                row[i] = rs.wasNull() ? Double.NaN : sgpa;
+            }
+            htnos.add(rs.getString(1));
+            rows.add(row);
+        });
+        // Sorted here rather than with ORDER BY, so the order matches Arrays.binarySearch and not the collation
+        int[] order = IntStream.range(0, htnos.size()).boxed()
+                .sorted(Comparator.comparing(htnos::get))
+                .mapToInt(Integer::intValue).toArray();
+
+        for (int i = 0; i < SEMESTERS.length; i++) {
+            int count = 0;
+            for (double[] row : rows) {
+                if (!Double.isNaN(row[i])) count++;
+            }
+            String[] semesterHtnos = new String[count];
+            double[] sgpaByHtno = new double[count];
+            int n = 0;
+            for (int r : order) {
+                double sgpa = rows.get(r)[i];
+                if (!Double.isNaN(sgpa)) {
+                    semesterHtnos[n] = htnos.get(r);
+                    sgpaByHtno[n] = sgpa;
+                    n++;
+                }
+            }
+            double[] sorted = sgpaByHtno.clone();
+            Arrays.sort(sorted);
+
+            String key = c + "/" + d + "/" + SEMESTERS[i];
+            if (count == 0) {
+                indexes.remove(key);
+            } else {
+                indexes.put(key, new SemesterIndex(semesterHtnos, sgpaByHtno, sorted));
+            }
+        }
+        markLoaded(c, d);
+        log.debug("Rebuilt rank index of {} {} from {} students", c, d, htnos.size());
+    }
+
+    private void markLoaded(String college, String dept) {
+        firstLoads.putIfAbsent(college + "/" + dept, CompletableFuture.completedFuture(null));
+    }
+
+    /**
+     * Sorted SGPAs of one semester. Immutable; replaced as a whole on refresh.
+     */
+    private static final class SemesterIndex {
+        private final String[] htnos;
+        private final double[] sgpaByHtno;
+        private final double[] sortedSgpas;
+
+        private SemesterIndex(String[] htnos, double[] sgpaByHtno, double[] sortedSgpas) {
+            this.htnos = htnos;
+            this.sgpaByHtno = sgpaByHtno;
+            this.sortedSgpas = sortedSgpas;
+        }
+
+        Rank rank(String htno) {
+            int position = Arrays.binarySearch(htnos, htno);
+            if (position < 0) {
+                return null;
+            }
+            double sgpa = sgpaByHtno[position];
+            int n = sortedSgpas.length;
+            int atOrBelow = upperBound(sortedSgpas, sgpa);
+            // Students with the same SGPA share a rank
+            int rank = n - atOrBelow + 1;
+            double percentile = GradeUtil.round2(100.0 * atOrBelow / n);
+            return new Rank(sgpa, rank, n, percentile);
+        }
+
+        /**
+         * Number of values <= value.
+         */
+        private static int upperBound(double[] values, double value) {
+            int low = 0;
+            int high = values.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (values[mid] <= value) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+
+    /**
+     * A student's position in their class for one semester.
+     */
+    @Getter
+    @AllArgsConstructor
+    public static final class Rank {
+        private final double sgpa;
+        private final int rank;
+        private final int outOf;
+        // Share of the class with the same SGPA or lower
+        private final double percentile;
+    }
+}
@@ -0,0 +1,235 @@
+package com.dailycodework.excel2database.service;
+
+import com.dailycodework.excel2database.domain.Subject;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Statement;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+
+/**
+ * ✅ Bulk mode for the first upload into an empty results table.
+ *
+ * Rows are streamed into a tab-separated file in the bulk-load directory and ingested with
+ * a single LOAD DATA LOCAL INFILE, which is much faster than even batched inserts. The
+ * driver is only allowed to read files from that directory (allowLoadLocalInfileInPath).
+ *
+ * A sheet can list the same (htno, subcode) twice; LOAD DATA would keep the first row, so
+ * repeats are held back and returned by {@link Session#load} to go through the normal
+ * upsert, which keeps the better grade.
+ *
+ * Uploads into the same table must hold its lock ({@link #lockTable}) from the emptiness
+ * check until their rows are written. Otherwise two uploads could both see an empty table and
+ * both use LOAD DATA, and the second would silently drop every row the first already loaded,
+ * better grades included.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ResultBulkLoader {
+
+    private final DynamicDatabaseService dynamicDbService;
+    private final ResultTableIndexer resultTableIndexer;
+    private final HtnoDirectory htnoDirectory;
+    private final TableCatalog tableCatalog;
+
+    @Value("${app.upload.bulk-load.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.upload.bulk-load.directory:${java.io.tmpdir}/results-bulk-load}")
+    private String directory;
+
+    // Table -> single permit held by the upload writing to it. A semaphore, not a lock,
+    // because the check runs on the request thread and the load on a pipeline worker.
+    private final Map<String, Semaphore> tableLocks = new ConcurrentHashMap<>();
+
+    /**
+     * ✅ Wait until no other upload is writing to the table, then hold it until {@link #unlockTable}.
+     */
+    public void lockTable(String tableName) {
+        Semaphore permit = tableLocks.computeIfAbsent(tableName.toLowerCase(), t -> new Semaphore(1, true));
+        try {
+            permit.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for another upload into " + tableName, e);
+        }
+    }
+
+    public void unlockTable(String tableName) {
+        tableLocks.get(tableName.toLowerCase()).release();
+    }
+
+    /**
+     * ✅ Whether an upload into this table can use LOAD DATA: bulk mode is enabled, the server
+     * accepts local files, and the table is empty and has its unique key. The caller must hold the table's lock.
+     */
+    public boolean canBulkLoad(String tableName, String college) {
+        if (!enabled) {
+            return false;
+        }
+        JdbcTemplate jdbc = dynamicDbService.getJdbcTemplateForCollege(college);
+        try {
+            Integer localInfile = jdbc.queryForObject("SELECT @@GLOBAL.local_infile", Integer.class);
+            if (localInfile == null || localInfile == 0) {
+                log.debug("Server has local_infile disabled, not using bulk load");
+                return false;
+            }
+            if (!resultTableIndexer.hasUniqueKey(jdbc, tableName)) {
+                return false;
+            }
+            String table = dynamicDbService.sanitizeTableName(tableName);
+            return jdbc.queryForList("SELECT 1 FROM " + table + " LIMIT 1", Integer.class).isEmpty();
+        } catch (Exception e) {
+            log.warn("⚠️ Could not check bulk-load conditions for {}: {}", tableName, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * ✅ Start writing the rows of one upload to a bulk-load file.
+     */
+    public Session open(String tableName, String dept, String semester, String college) {
+        try {
+            Path dir = Files.createDirectories(Paths.get(directory));
+            Path file = Files.createTempFile(dir, "results-", ".tsv");
+            return new Session(tableName, dept, semester, college, file);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not create bulk-load file", e);
+        }
+    }
+
+    /**
+     * Rows of one upload on their way to LOAD DATA. Not thread-safe; used by a single writer.
+     */
+    public final class Session implements AutoCloseable {
+
+        private final String tableName;
+        private final String dept;
+        private final String semester;
+        private final String college;
+        private final Path file;
+        private final BufferedWriter out;
+
+        private final Set<String> keys = new HashSet<>();
+        private final Set<String> htnos = new LinkedHashSet<>();
+        private final List<Subject> repeated = new ArrayList<>();
+        private int written;
+
+        private Session(String tableName, String dept, String semester, String college, Path file) throws IOException {
+            this.tableName = tableName;
+            this.dept = dept;
+            this.semester = semester;
+            this.college = college;
+            this.file = file;
+            this.out = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * ✅ Append a chunk of rows to the file.
+         */
+        public void append(List<Subject> subjects) {
+            try {
+                for (Subject subject : subjects) {
+                    if (!keys.add(subject.getHtno() + '\u0000' + subject.getSubcode())) {
+                        repeated.add(subject);
+                        continue;
+                    }
+                    out.write(String.valueOf(subject.getSno()));
+                    out.write('\t');
+                    out.write(field(subject.getHtno()));
+                    out.write('\t');
+                    out.write(field(subject.getSubcode()));
+                    out.write('\t');
+                    out.write(field(subject.getSubname()));
+                    out.write('\t');
+                    out.write(subject.getInternals() == null ? "\\N" : subject.getInternals().toString());
+                    out.write('\t');
+                    out.write(field(subject.getGrade()));
+                    out.write('\t');
+                    out.write(subject.getCredit() == null ? "\\N" : subject.getCredit().toString());
+                    out.write('\n');
+                    if (subject.getHtno() != null) {
+                        htnos.add(subject.getHtno());
+                    }
+                    written++;
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not write bulk-load file", e);
+            }
+        }
+
+        /**
+         * ✅ Load the file into the table. Returns the repeated rows that still need the upsert path.
+         */
+        public List<Subject> load() {
+            try {
+                out.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not write bulk-load file", e);
+            }
+
+            String path = file.toAbsolutePath().toString().replace('\\', '/').replace("'", "\\'");
+            String sql = "LOAD DATA LOCAL INFILE '" + path + "' INTO TABLE " + dynamicDbService.sanitizeTableName(tableName) +
+                    " CHARACTER SET utf8mb4 FIELDS TERMINATED BY '\\t' ESCAPED BY '\\\\' LINES TERMINATED BY '\\n'" +
+                    " (sno, htno, subcode, subname, internals, grade, credit)";
+
+            JdbcTemplate jdbc = dynamicDbService.getJdbcTemplateForCollege(college);
+            long start = System.currentTimeMillis();
+            Integer loaded = jdbc.execute((ConnectionCallback<Integer>) con -> {
+                try (Statement statement = con.createStatement()) {
+                    // A large load can take longer than the template's query timeout
+                    statement.setQueryTimeout(0);
+                    return statement.executeUpdate(sql);
+                }
+            });
+            log.info("📦 LOAD DATA into {}: {} of {} rows in {} ms", tableName, loaded, written,
+                    System.currentTimeMillis() - start);
+
+            tableCatalog.bumpVersion(tableName);
+            htnoDirectory.recordResults(jdbc, college, dept, semester, htnos);
+            return repeated;
+        }
+
+        @Override
+        public void close() {
+            try {
+                out.close();
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                log.warn("Could not delete bulk-load file {}: {}", file, e.getMessage());
+            }
+        }
+
+        private String field(String value) {
+            if (value == null) {
+                return "\\N";
+            }
+            StringBuilder escaped = new StringBuilder(value.length());
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                switch (c) {
+                    case '\\' -> escaped.append("\\\\");
+                    case '\t' -> escaped.append("\\t");
+                    case '\n' -> escaped.append("\\n");
+                    case '\r' -> escaped.append("\\r");
+                    default -> escaped.append(c);
+                }
+            }
+            return escaped.toString();
+        }
+    }
+}
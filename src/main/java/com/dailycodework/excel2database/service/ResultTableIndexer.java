@@ -0,0 +1,259 @@
+package com.dailycodework.excel2database.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * ✅ Keeps the indexes of the dynamic results tables in place.
+ *
+ * New results tables are created with {@link #INDEX_DEFINITIONS}. Tables created before
+ * the indexes existed are upgraded by a background job after startup, one table at a
+ * time, using online DDL (ALGORITHM=INPLACE, LOCK=NONE) so reads and uploads keep working
+ * while the indexes are built.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ResultTableIndexer {
+
+    public static final String UNIQUE_KEY = "uk_htno_subcode";
+
+    // Index name -> definition, used both in CREATE TABLE and in ALTER TABLE ... ADD
+    public static final Map<String, String> INDEX_DEFINITIONS = createIndexDefinitions();
+
+    // Non-unique fallback when a legacy table has duplicate (htno, subcode) rows
+    private static final String FALLBACK_KEY = "idx_htno_subcode";
+
+    private final DynamicDatabaseService dynamicDbService;
+    private final TableCatalog tableCatalog;
+
+    @Value("${app.indexer.enabled:true}")
+    private boolean enabled;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "result-table-indexer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    // Tables known to have the unique (htno, subcode) key
+    private final Set<String> uniqueKeyTables = ConcurrentHashMap.newKeySet();
+
+    private volatile List<TableReport> lastReport = List.of();
+    private volatile long lastRunStartedAt;
+    private volatile long lastRunFinishedAt;
+
+    private static Map<String, String> createIndexDefinitions() {
+        Map<String, String> indexes = new LinkedHashMap<>();
+        indexes.put(UNIQUE_KEY, "UNIQUE KEY " + UNIQUE_KEY + " (htno, subcode)");
+        indexes.put("idx_subcode_grade", "KEY idx_subcode_grade (subcode, grade)");
+        indexes.put("idx_subname", "KEY idx_subname (subname)");
+        return Collections.unmodifiableMap(indexes);
+    }
+
+    /**
+     * ✅ Index clauses to append to a CREATE TABLE statement for a results table.
+     */
+    public static String indexClauses() {
+        return String.join(", ", INDEX_DEFINITIONS.values());
+    }
+
+    /**
+     * ✅ Whether the table has the unique (htno, subcode) key. Positive answers are cached,
+     * so once a table has the key this is a set lookup.
+     */
+    public boolean hasUniqueKey(JdbcTemplate jdbc, String tableName) {
+        String table = tableName.replace("`", "").toLowerCase();
+        if (uniqueKeyTables.contains(table)) {
+            return true;
+        }
+        try {
+            Integer count = jdbc.queryForObject("SELECT COUNT(*) FROM INFORMATION_SCHEMA.STATISTICS " +
+                    "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND INDEX_NAME = ?",
+                    Integer.class, table, UNIQUE_KEY);
+            if (count != null && count > 0) {
+                uniqueKeyTables.add(table);
+                return true;
+            }
+        } catch (Exception e) {
+            log.debug("Could not check indexes of {}: {}", table, e.getMessage());
+        }
+        return false;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (enabled) {
+            upgradeInBackground();
+        } else {
+            log.info("Result table indexer disabled");
+        }
+    }
+
+    /**
+     * ✅ Start an upgrade of all results tables in the background.
+     * Returns false if an upgrade is already running.
+     */
+    public boolean upgradeInBackground() {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        executor.submit(() -> {
+            try {
+                upgradeAll();
+            } catch (Exception e) {
+                log.error("❌ Result table index upgrade failed: {}", e.getMessage(), e);
+            } finally {
+                running.set(false);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * ✅ Add missing indexes to every catalogued results table.
+     */
+    private void upgradeAll() {
+        lastRunStartedAt = System.currentTimeMillis();
+        JdbcTemplate jdbc = dynamicDbService.getJdbcTemplateForCollege(null);
+        Map<String, Set<String>> existing = loadExistingIndexes(jdbc);
+        // Building an index or looking for duplicates reads the whole table, which can take far longer than 10 s
+        JdbcTemplate untimed = dynamicDbService.getUntimedJdbcTemplate();
+
+        List<TableReport> report = new ArrayList<>();
+        int alreadyIndexed = 0;
+        for (String college : tableCatalog.getColleges()) {
+            for (String table : tableCatalog.getResultTables(college)) {
+                TableReport tableReport = upgradeTable(untimed, table, existing.getOrDefault(table, Set.of()));
+                if (tableReport != null) {
+                    report.add(tableReport);
+                } else {
+                    alreadyIndexed++;
+                }
+            }
+        }
+
+        lastReport = List.copyOf(report);
+        lastRunFinishedAt = System.currentTimeMillis();
+        log.info("🗂️ Result table index check finished: {} tables upgraded, {} already indexed, took {} ms",
+                report.size(), alreadyIndexed, lastRunFinishedAt - lastRunStartedAt);
+    }
+
+    /**
+     * Index names of all results tables, read in one query.
+     */
+    private Map<String, Set<String>> loadExistingIndexes(JdbcTemplate jdbc) {
+        Map<String, Set<String>> indexes = new HashMap<>();
+        jdbc.query("SELECT DISTINCT TABLE_NAME, INDEX_NAME FROM INFORMATION_SCHEMA.STATISTICS " +
+                "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME LIKE '%\\_results\\_%'", rs -> {
+            indexes.computeIfAbsent(rs.getString("TABLE_NAME").toLowerCase(), t -> new HashSet<>())
+                    .add(rs.getString("INDEX_NAME").toLowerCase());
+        });
+        return indexes;
+    }
+
+    /**
+     * Add the missing indexes of one table. Returns null if nothing had to be done.
+     * jdbc must not have a query timeout.
+     */
+    private TableReport upgradeTable(JdbcTemplate jdbc, String table, Set<String> existing) {
+        if (existing.contains(UNIQUE_KEY)) {
+            uniqueKeyTables.add(table);
+        }
+
+        List<String> missing = new ArrayList<>();
+        for (String index : INDEX_DEFINITIONS.keySet()) {
+            if (!existing.contains(index)) {
+                missing.add(index);
+            }
+        }
+        if (missing.isEmpty()) {
+            return null;
+        }
+
+        String sanitizedTable = dynamicDbService.sanitizeTableName(table);
+        List<String> added = new ArrayList<>();
+        String note = null;
+        long start = System.currentTimeMillis();
+
+        for (String index : missing) {
+            String definition = INDEX_DEFINITIONS.get(index);
+
+            // A unique key cannot be built over duplicate rows; index the columns without the constraint instead
+            if (UNIQUE_KEY.equals(index) && hasDuplicates(jdbc, sanitizedTable)) {
+                note = "duplicate (htno, subcode) rows, unique key skipped";
+                if (existing.contains(FALLBACK_KEY)) {
+                    continue;
+                }
+                index = FALLBACK_KEY;
+                definition = "KEY " + FALLBACK_KEY + " (htno, subcode)";
+            }
+
+            try {
+                jdbc.execute("ALTER TABLE " + sanitizedTable + " ADD " + definition + ", ALGORITHM=INPLACE, LOCK=NONE");
+                added.add(index);
+                if (UNIQUE_KEY.equals(index)) {
+                    uniqueKeyTables.add(table);
+                }
+            } catch (Exception e) {
+                log.warn("⚠️ Could not add index {} to {}: {}", index, table, e.getMessage());
+                note = e.getMessage();
+            }
+        }
+
+        long took = System.currentTimeMillis() - start;
+        log.info("Indexed {}: added {} in {} ms{}", table, added, took, note != null ? " (" + note + ")" : "");
+        return new TableReport(table, added, note, took);
+    }
+
+    private boolean hasDuplicates(JdbcTemplate jdbc, String sanitizedTable) {
+        List<Integer> rows = jdbc.queryForList("SELECT 1 FROM " + sanitizedTable +
+                " GROUP BY htno, subcode HAVING COUNT(*) > 1 LIMIT 1", Integer.class);
+        return !rows.isEmpty();
+    }
+
+    /**
+     * ✅ Tables upgraded by the last run.
+     */
+    public Map<String, Object> getReport() {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("running", running.get());
+        report.put("lastRunStartedAt", lastRunStartedAt);
+        report.put("lastRunFinishedAt", lastRunFinishedAt);
+        report.put("tablesWithUniqueKey", uniqueKeyTables.size());
+        report.put("upgradedTables", lastReport);
+        return report;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Result of upgrading a single table.
+     */
+    @Getter
+    @AllArgsConstructor
+    public static final class TableReport {
+        private final String table;
+        private final List<String> added;
+        private final String note;
+        private final long millis;
+    }
+}
@@ -0,0 +1,304 @@
+package com.dailycodework.excel2database.service;
+
+import com.dailycodework.excel2database.domain.Subject;
+import com.dailycodework.excel2database.domain.UploadStats;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.File;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * ✅ Runs a results upload as two overlapping stages, then the SGPAs:
+ *
+ * 1. parse   - the calling thread streams rows out of the sheet and cuts them into chunks
+ * 2. write   - a worker upserts each chunk into the results table, or for the first upload
+ *              into an empty table streams them to a file for LOAD DATA (see {@link ResultBulkLoader})
+ * 3. SGPA    - once every row is saved, one set-based pass in MySQL derives the semester's SGPAs
+ *              from the whole results table (see {@link SgpaService#calculateSemesterSgpaInDatabase})
+ *
+ * The stages are connected by a bounded queue, so a slow database makes the parser wait
+ * instead of piling rows up on the heap, and parsing overlaps the writes. The SGPAs are not
+ * aggregated from the chunks: a supplementary upload holds only the re-taken subjects, so
+ * they have to come from the saved table.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ResultUploadPipeline {
+
+    // Marks the end of the chunk stream (compared by identity)
+    private static final List<Subject> END = Collections.unmodifiableList(new ArrayList<>());
+
+    private final ExcelUploadService excelUploadService;
+    private final SubjectService subjectService;
+    private final SgpaService sgpaService;
+    private final ResultBulkLoader resultBulkLoader;
+    private final BacklogIndex backlogIndex;
+    private final SubjectSearchIndex subjectSearchIndex;
+
+    @Value("${app.upload.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${app.upload.queue-capacity:4}")
+    private int queueCapacity;
+
+    // Mode -> {uploads, rows, millis}
+    private final Map<String, LongAdder[]> modeTotals = new ConcurrentHashMap<>();
+
+    // Uploads running at once, background jobs and inline /excel/upload calls alike
+    @Value("${app.upload.jobs.max-concurrent:2}")
+    private int maxConcurrent;
+
+    private Semaphore running;
+    private ExecutorService workers;
+
+    @PostConstruct
+    public void init() {
+        int uploads = Math.max(1, maxConcurrent);
+        running = new Semaphore(uploads, true);
+        AtomicInteger count = new AtomicInteger();
+        // One writer per upload; a running upload always finds its thread free, so its queue cannot stall
+        workers = Executors.newFixedThreadPool(uploads, r -> {
+            Thread thread = new Thread(r, "upload-stage-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * ✅ Parse, save and calculate SGPA for an uploaded results sheet.
+     */
+    public UploadStats upload(InputStream inputStream, String dept, String semester, String college) {
+        return run(consumer -> excelUploadService.streamSubjectsFromExcel(inputStream, consumer),
+                dept, semester, college, new UploadJob(null, "inline upload"));
+    }
+
+    /**
+     * ✅ Same as {@link #upload(InputStream, String, String, String)} for a sheet already saved to disk,
+     * reporting progress to the given job.
+     */
+    public UploadStats upload(File file, String dept, String semester, String college, UploadJob job) {
+        return run(consumer -> excelUploadService.streamSubjectsFromExcel(file, consumer),
+                dept, semester, college, job);
+    }
+
+    private UploadStats run(Function<Consumer<Subject>, Integer> source, String dept, String semester,
+                            String college, UploadJob job) {
+        try {
+            running.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Upload interrupted while waiting for a free slot", e);
+        }
+        try {
+            return runUpload(source, dept, semester, college, job);
+        } finally {
+            running.release();
+        }
+    }
+
+    private UploadStats runUpload(Function<Consumer<Subject>, Integer> source, String dept, String semester,
+                                  String college, UploadJob job) {
+        long start = System.currentTimeMillis();
+        job.start();
+        String tableName = subjectService.prepareResultsTable(dept, semester, college);
+
+        // One upload per table at a time, so the emptiness check below still holds when LOAD DATA runs
+        resultBulkLoader.lockTable(tableName);
+        try {
+            return runStages(source, dept, semester, college, job, tableName, start);
+        } finally {
+            resultBulkLoader.unlockTable(tableName);
+        }
+    }
+
+    private UploadStats runStages(Function<Consumer<Subject>, Integer> source, String dept, String semester,
+                                  String college, UploadJob job, String tableName, long start) {
+        BlockingQueue<List<Subject>> writeQueue = new ArrayBlockingQueue<>(queueCapacity);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        AtomicBoolean batched = new AtomicBoolean(true);
+
+        // First load into an empty table goes through LOAD DATA instead of the upsert
+        boolean bulk = resultBulkLoader.canBulkLoad(tableName, college);
+
+        Future<?> writer = workers.submit(() -> runStage("write", failure, () -> {
+            if (bulk) {
+                try (ResultBulkLoader.Session session = resultBulkLoader.open(tableName, dept, semester, college)) {
+                    for (List<Subject> chunk = take(writeQueue, failure); chunk != END; chunk = take(writeQueue, failure)) {
+                        session.append(chunk);
+                    }
+                    if (failure.get() == null) {
+                        List<Subject> repeated = session.load();
+                        // Nothing is saved before LOAD DATA commits, so the backlogs reload from the new table
+                        backlogIndex.invalidate(college, dept);
+                        job.rowsWritten(job.getRowsParsed().get() - repeated.size());
+                        if (!repeated.isEmpty()) {
+                            subjectService.writeSubjects(tableName, repeated, dept, semester, college);
+                            job.rowsWritten(repeated.size());
+                        }
+                        subjectSearchIndex.indexTable(college, tableName);
+                    }
+                }
+                return;
+            }
+            for (List<Subject> chunk = take(writeQueue, failure); chunk != END; chunk = take(writeQueue, failure)) {
+                if (!subjectService.writeSubjects(tableName, chunk, dept, semester, college)) {
+                    batched.set(false);
+                }
+                backlogIndex.record(college, dept, semester, chunk);
+                subjectSearchIndex.record(college, tableName, chunk);
+                job.rowsWritten(chunk.size());
+            }
+        }));
+
+        int rows = 0;
+        try {
+            List<Subject> chunk = new ArrayList<>(batchSize);
+            rows = source.apply(subject -> {
+                job.rowParsed();
+                chunk.add(subject);
+                if (chunk.size() >= batchSize) {
+                    List<Subject> full = List.copyOf(chunk);
+                    chunk.clear();
+                    put(writeQueue, full, failure);
+                }
+            });
+            if (!chunk.isEmpty()) {
+                List<Subject> rest = List.copyOf(chunk);
+                put(writeQueue, rest, failure);
+            }
+            job.parsingFinished();
+        } catch (RuntimeException e) {
+            failure.compareAndSet(null, e);
+        } finally {
+            // Always release the writer, even when parsing failed
+            finish(writeQueue, writer);
+        }
+
+        await(writer);
+
+        Throwable error = failure.get();
+        if (error != null) {
+            // Some chunks may not have been saved; rebuild the backlogs from the tables instead of guessing
+            backlogIndex.invalidate(college, dept);
+            throw error instanceof RuntimeException ? (RuntimeException) error
+                    : new RuntimeException("Upload failed: " + error.getMessage(), error);
+        }
+
+        // Every row is saved now, so the SGPAs never belong to an upload that failed halfway
+        if (rows > 0) {
+            job.storingSgpa();
+            sgpaService.calculateSemesterSgpaInDatabase(dept, semester, college);
+        }
+
+        String mode = bulk ? "bulk-load" : batched.get() ? "batched" : "row-by-row";
+        UploadStats stats = new UploadStats(rows, System.currentTimeMillis() - start, mode);
+        LongAdder[] totals = modeTotals.computeIfAbsent(mode, m -> new LongAdder[]{new LongAdder(), new LongAdder(), new LongAdder()});
+        totals[0].increment();
+        totals[1].add(stats.getRows());
+        totals[2].add(stats.getMillis());
+        log.info("📥 Uploaded results to {}: {}", tableName, stats);
+        return stats;
+    }
+
+    /**
+     * ✅ Upload throughput per write mode, so bulk loads can be compared with the batched path.
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        modeTotals.forEach((mode, totals) -> {
+            long rows = totals[1].sum();
+            long millis = totals[2].sum();
+            Map<String, Object> modeStats = new LinkedHashMap<>();
+            modeStats.put("uploads", totals[0].sum());
+            modeStats.put("rows", rows);
+            modeStats.put("millis", millis);
+            modeStats.put("rowsPerSecond", millis > 0 ? rows * 1000 / millis : rows);
+            stats.put(mode, modeStats);
+        });
+        return stats;
+    }
+
+    private void runStage(String name, AtomicReference<Throwable> failure, Stage stage) {
+        try {
+            stage.run();
+        } catch (Throwable e) {
+            log.error("❌ Upload stage '{}' failed: {}", name, e.getMessage(), e);
+            failure.compareAndSet(null, e);
+        }
+    }
+
+    private interface Stage {
+        void run() throws Exception;
+    }
+
+    /**
+     * Hand a chunk to the next stage, waiting while its queue is full. Gives up once any stage has failed.
+     */
+    private void put(BlockingQueue<List<Subject>> queue, List<Subject> chunk, AtomicReference<Throwable> failure) {
+        try {
+            while (!queue.offer(chunk, 100, TimeUnit.MILLISECONDS)) {
+                if (failure.get() != null) {
+                    throw new IllegalStateException("Upload aborted", failure.get());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Upload interrupted", e);
+        }
+    }
+
+    /**
+     * Take the next chunk. Once any stage has failed, drains to {@link #END} so the stage stops.
+     */
+    private List<Subject> take(BlockingQueue<List<Subject>> queue, AtomicReference<Throwable> failure) throws InterruptedException {
+        List<Subject> chunk = queue.take();
+        return failure.get() != null ? END : chunk;
+    }
+
+    /**
+     * Send the end marker to a stage, waiting for queue space unless the stage has already stopped.
+     */
+    private void finish(BlockingQueue<List<Subject>> queue, Future<?> stage) {
+        try {
+            while (!stage.isDone() && !queue.offer(END, 100, TimeUnit.MILLISECONDS)) {
+                // Queue still full, the stage is busy with earlier chunks
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void await(Future<?> stage) {
+        try {
+            stage.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Upload interrupted", e);
+        } catch (ExecutionException e) {
+            // Stage failures are recorded in the shared failure reference
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+}
@@ -0,0 +1,86 @@
+package com.dailycodework.excel2database.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * ✅ Progress of one SGPA recalculation over many results tables, updated by {@link SgpaRecalculationService}.
+ */
+@Getter
+public class SgpaRecalculationJob {
+
+    private final String id;
+    private final String scope;
+    private final int tablesTotal;
+    private final long startedAt = System.currentTimeMillis();
+
+    private final AtomicInteger tablesDone = new AtomicInteger();
+    private final AtomicInteger tablesFailed = new AtomicInteger();
+    private final ConcurrentLinkedQueue<TableResult> tables = new ConcurrentLinkedQueue<>();
+    private volatile long finishedAt;
+
+    public SgpaRecalculationJob(String id, String scope, int tablesTotal) {
+        this.id = id;
+        this.scope = scope;
+        this.tablesTotal = tablesTotal;
+        if (tablesTotal == 0) {
+            finishedAt = startedAt;
+        }
+    }
+
+    void tableFinished(TableResult result) {
+        tables.add(result);
+        if (result.getError() != null) {
+            tablesFailed.incrementAndGet();
+        }
+        if (tablesDone.incrementAndGet() == tablesTotal) {
+            finishedAt = System.currentTimeMillis();
+        }
+    }
+
+    public boolean isFinished() {
+        return tablesDone.get() >= tablesTotal;
+    }
+
+    /**
+     * ✅ Snapshot for the status endpoint, with per-table timings and an ETA from the average table time.
+     */
+    public Map<String, Object> toStatus() {
+        int done = tablesDone.get();
+        long end = finishedAt > 0 ? finishedAt : System.currentTimeMillis();
+        long elapsed = end - startedAt;
+
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("jobId", id);
+        status.put("scope", scope);
+        status.put("finished", isFinished());
+        status.put("tablesTotal", tablesTotal);
+        status.put("tablesDone", done);
+        status.put("tablesFailed", tablesFailed.get());
+        status.put("elapsedMillis", elapsed);
+        // Tables run in parallel, so the ETA scales the wall-clock rate so far
+        status.put("etaSeconds", isFinished() ? 0L : done > 0 ? (tablesTotal - done) * elapsed / done / 1000 : null);
+        List<TableResult> results = new ArrayList<>(tables);
+        status.put("tables", results);
+        return status;
+    }
+
+    /**
+     * Outcome of recalculating a single results table.
+     */
+    @Getter
+    @AllArgsConstructor
+    public static final class TableResult {
+        private final String table;
+        private final int students;
+        private final long millis;
+        private final String error;
+    }
+}
@@ -0,0 +1,121 @@
+package com.dailycodework.excel2database.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * ✅ Recalculates the SGPAs of every department and semester of a college, or of all colleges,
+ * for example after a grading correction.
+ *
+ * The table list is read fresh from the schema. Each department is one task on a bounded
+ * pool: departments are independent, but the semesters of a department share its grades
+ * table and running totals, so they run one after the other inside the task to avoid lock
+ * contention. Each table is written with the set-based statements of {@link SgpaService}.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SgpaRecalculationService {
+
+    private static final int RETAINED_JOBS = 20;
+
+    private final SgpaService sgpaService;
+    private final TableCatalog tableCatalog;
+    private final DynamicDatabaseService dynamicDbService;
+
+    @Value("${app.sgpa.recalc.parallelism:4}")
+    private int parallelism;
+
+    private ExecutorService executor;
+
+    // Most recent jobs by id, oldest dropped first
+    private final Map<String, SgpaRecalculationJob> jobs = Collections.synchronizedMap(
+            new LinkedHashMap<>() {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, SgpaRecalculationJob> eldest) {
+                    return size() > RETAINED_JOBS;
+                }
+            });
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger count = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(Math.max(1, parallelism), r -> {
+            Thread thread = new Thread(r, "sgpa-recalc-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * ✅ Start recalculating all results tables of a college, or of every college when college is null.
+     */
+    public SgpaRecalculationJob start(String college) {
+        tableCatalog.reload(dynamicDbService.getJdbcTemplateForCollege(null));
+
+        List<String> colleges = college == null || college.isBlank() ? tableCatalog.getColleges() : List.of(college.toLowerCase());
+        Map<String, List<String>> semestersByDept = new LinkedHashMap<>();
+        int tables = 0;
+        for (String c : colleges) {
+            for (String dept : tableCatalog.getResultDepartments(c)) {
+                List<String> semesters = tableCatalog.getResultSemesters(c, dept);
+                semestersByDept.put(c + "/" + dept, semesters);
+                tables += semesters.size();
+            }
+        }
+
+        SgpaRecalculationJob job = new SgpaRecalculationJob(UUID.randomUUID().toString(),
+                colleges.size() == 1 ? colleges.get(0) : "all", tables);
+        jobs.put(job.getId(), job);
+        log.info("🔁 SGPA recalculation {} started: {} tables in {} departments",
+                job.getId(), tables, semestersByDept.size());
+
+        semestersByDept.forEach((key, semesters) -> {
+            String c = key.substring(0, key.indexOf('/'));
+            String dept = key.substring(key.indexOf('/') + 1);
+            executor.execute(() -> recalculateDepartment(job, c, dept, semesters));
+        });
+        return job;
+    }
+
+    private void recalculateDepartment(SgpaRecalculationJob job, String college, String dept, List<String> semesters) {
+        for (String semester : semesters) {
+            String table = college + "_results_" + dept + "_" + semester;
+            long start = System.currentTimeMillis();
+            try {
+                int students = sgpaService.calculateSemesterSgpaInDatabase(dept, semester, college);
+                job.tableFinished(new SgpaRecalculationJob.TableResult(table, students,
+                        System.currentTimeMillis() - start, null));
+            } catch (Exception e) {
+                log.warn("⚠️ SGPA recalculation of {} failed: {}", table, e.getMessage());
+                job.tableFinished(new SgpaRecalculationJob.TableResult(table, 0,
+                        System.currentTimeMillis() - start, e.getMessage()));
+            }
+        }
+        if (job.isFinished()) {
+            log.info("🔁 SGPA recalculation {} finished: {} tables, {} failed, took {} ms", job.getId(),
+                    job.getTablesTotal(), job.getTablesFailed().get(), job.getFinishedAt() - job.getStartedAt());
+        }
+    }
+
+    /**
+     * ✅ Look up a job. Returns null for unknown or dropped ids.
+     */
+    public SgpaRecalculationJob getJob(String jobId) {
+        return jobs.get(jobId);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
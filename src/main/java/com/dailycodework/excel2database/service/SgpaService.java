@@ -1,127 +1,262 @@
 package com.dailycodework.excel2database.service;
 
 import com.dailycodework.excel2database.domain.Subject;
+import com.dailycodework.excel2database.util.GradeUtil;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 
-import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class SgpaService {
 
+    public static final String GRADE_POINTS_TABLE = "grade_points";
+
+    // Credit-weighted average of ledger or total points, an SGPA or a CGPA; 0 when no credits count yet
+    private static final String GPA_FROM_TOTALS = "COALESCE(ROUND(t.points / NULLIF(t.credits, 0), 2), 0)";
+
+    // Subjects with an unknown grade or no credit are left out, as in calculateSGPAFromList
+    private static final String VALID_SUBJECT = "gp.points IS NOT NULL AND r.credit > 0";
+
     private final DynamicDatabaseService dynamicDbService;
+    private final TableCatalog tableCatalog;
+    private final TopAchieversService topAchieversService;
+    private final RankIndexService rankIndexService;
+
+    private volatile boolean gradePointsReady;
 
-    public void calculateAndStoreAllSGPAForSemester(List<Subject> subjects, String dept, String semester, String college) {
+    // Grades tables known to have the total_points / total_credits columns
+    private final Set<String> gradesTablesWithTotals = ConcurrentHashMap.newKeySet();
+
+    /**
+     * ✅ Calculate the SGPA of every student in a semester inside MySQL.
+     *
+     * Joins the results table with the grade_points table into the semester ledger with a single
+     * INSERT ... SELECT ... GROUP BY htno, derives the SGPAs from it and updates the running
+     * totals, so no result rows are read into the application. Returns the number of rows written.
+     *
+     * This is the only way SGPAs are stored, after uploads and recalculations alike. The ledger
+     * always covers the whole results table: a supplementary upload holds only the re-taken
+     * subjects, so an SGPA of the uploaded rows alone would contradict the CGPA and running totals.
+     */
+    public int calculateSemesterSgpaInDatabase(String dept, String semester, String college) {
         JdbcTemplate jdbc = dynamicDbService.getJdbcTemplateForCollege(college);
-        List<String> uniqueHtnoList = subjects.stream().map(Subject::getHtno).distinct().toList();
+        String resultsTableName = college.toLowerCase() + "_results_" + dept.toLowerCase() + "_" + semester.replace("-", "_");
+        if (!tableCatalog.tableExists(resultsTableName)) {
+            throw new IllegalArgumentException("No results uploaded for " + dept + " - " + semester);
+        }
+        String resultsTable = dynamicDbService.sanitizeTableName(resultsTableName);
+
+        String table = ensureGradesTable(jdbc, college, dept);
+        String totalsTable = totalsTable(college, dept);
+
+        long start = System.currentTimeMillis();
+        Integer written = dynamicDbService.getTransactionTemplate().execute(status -> {
+            // Per-student points and credits of the semester go to the ledger, the SGPA is derived from them
+            return refreshSemester(jdbc, resultsTable, table, totalsTable, semester);
+        });
+        log.info("Calculated SGPA in database for {} {} {} in {} ms", college, dept, semester,
+                System.currentTimeMillis() - start);
+        refreshRankings(college, dept, semester);
+        return written == null ? 0 : written;
+    }
 
-        for (String htno : uniqueHtnoList) {
-            List<Subject> filtered = subjects.stream().filter(s -> s.getHtno().equals(htno)).toList();
-            double sgpa = calculateSGPAFromList(filtered);
-            saveSgpaToDynamicTable(jdbc, htno, semester, sgpa, dept);
+    /**
+     * Create and fill the shared grade_points table on first use.
+     */
+    private void ensureGradePointsTable(JdbcTemplate jdbc) {
+        if (gradePointsReady) {
+            return;
+        }
+        synchronized (this) {
+            if (gradePointsReady) {
+                return;
+            }
+            jdbc.execute("CREATE TABLE IF NOT EXISTS " + GRADE_POINTS_TABLE + " (" +
+                    "grade VARCHAR(10) PRIMARY KEY, points DECIMAL(4,2) NOT NULL)");
+            // Seeded from GradeUtil so SQL and Java grade alike; grades not listed here don't count
+            List<Byte> codes = new ArrayList<>();
+            for (byte code = 0; code < GradeUtil.gradeCount(); code++) {
+                codes.add(code);
+            }
+            jdbc.batchUpdate("INSERT INTO " + GRADE_POINTS_TABLE + " (grade, points) VALUES (?, ?) " +
+                    "ON DUPLICATE KEY UPDATE points = VALUES(points)", codes, codes.size(), (ps, code) -> {
+                ps.setString(1, GradeUtil.label(code));
+                ps.setDouble(2, GradeUtil.points(code));
+            });
+            tableCatalog.register(GRADE_POINTS_TABLE);
+            gradePointsReady = true;
         }
     }
 
-    public void saveSgpaToDynamicTable(JdbcTemplate jdbc, String htno, String semester, double sgpa, String dept) {
-        // Get the college from the JDBC URL
-        String college = extractCollegeFromJdbc(jdbc);
+    /**
+     * Create the grades table and semester ledger of a department if needed, and add the
+     * running total columns to grades tables created before they existed. Returns the sanitized table name.
+     */
+    private String ensureGradesTable(JdbcTemplate jdbc, String college, String dept) {
         String baseTable = "grades_" + dept.toLowerCase();
-        String table = college.toLowerCase() + "_" + baseTable;
-        String column = "sem_" + semester.replace("-", "_");
-
-        log.info("Saving SGPA {} for HTNO {} in table {}", sgpa, htno, table);
-
-        jdbc.execute("CREATE TABLE IF NOT EXISTS " + table + " (" +
-                "htno VARCHAR(20) PRIMARY KEY, " +
-                "sem_1_1 DECIMAL(4,2), sem_1_2 DECIMAL(4,2), " +
-                "sem_2_1 DECIMAL(4,2), sem_2_2 DECIMAL(4,2), " +
-                "sem_3_1 DECIMAL(4,2), sem_3_2 DECIMAL(4,2), " +
-                "sem_4_1 DECIMAL(4,2), sem_4_2 DECIMAL(4,2), " +
-                "cgpa DECIMAL(4,2))");
-
-        Integer count = jdbc.queryForObject("SELECT COUNT(*) FROM " + table + " WHERE htno = ?", Integer.class, htno);
-        if (count != null && count > 0) {
-            jdbc.update("UPDATE " + table + " SET " + column + " = ? WHERE htno = ?", sgpa, htno);
-        } else {
-            jdbc.update("INSERT INTO " + table + " (htno, " + column + ") VALUES (?, ?)", htno, sgpa);
-        }
+        String tableName = college.toLowerCase() + "_" + baseTable;
+        String table = dynamicDbService.sanitizeTableName(tableName);
 
-        // Update CGPA
-        String fetchQuery = "SELECT sem_1_1, sem_1_2, sem_2_1, sem_2_2, sem_3_1, sem_3_2, sem_4_1, sem_4_2 FROM " + table + " WHERE htno = ?";
-        List<Double> sgs = jdbc.query(fetchQuery, rs -> {
-            List<Double> vals = new ArrayList<>();
-            while (rs.next()) for (int i = 1; i <= 8; i++) {
-                double val = rs.getDouble(i);
-                if (!rs.wasNull()) vals.add(val);
+        if (!tableCatalog.tableExists(tableName)) {
+            jdbc.execute("CREATE TABLE IF NOT EXISTS " + table + " (" +
+                    "htno VARCHAR(20) PRIMARY KEY, " +
+                    "sem_1_1 DECIMAL(4,2), sem_1_2 DECIMAL(4,2), " +
+                    "sem_2_1 DECIMAL(4,2), sem_2_2 DECIMAL(4,2), " +
+                    "sem_3_1 DECIMAL(4,2), sem_3_2 DECIMAL(4,2), " +
+                    "sem_4_1 DECIMAL(4,2), sem_4_2 DECIMAL(4,2), " +
+                    "cgpa DECIMAL(4,2), " +
+                    "total_points DECIMAL(8,2) NOT NULL DEFAULT 0, total_credits DECIMAL(6,2) NOT NULL DEFAULT 0)");
+            tableCatalog.register(tableName);
+            gradesTablesWithTotals.add(tableName);
+        } else if (!gradesTablesWithTotals.contains(tableName)) {
+            Integer columns = jdbc.queryForObject("SELECT COUNT(*) FROM INFORMATION_SCHEMA.COLUMNS " +
+                    "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND COLUMN_NAME = 'total_points'",
+                    Integer.class, tableName);
+            if (columns == null || columns == 0) {
+                log.info("Adding running total columns to {}", tableName);
+                jdbc.execute("ALTER TABLE " + table + " ADD COLUMN total_points DECIMAL(8,2) NOT NULL DEFAULT 0, " +
+                        "ADD COLUMN total_credits DECIMAL(6,2) NOT NULL DEFAULT 0");
             }
-            return vals;
-        }, htno);
+            gradesTablesWithTotals.add(tableName);
+        }
 
-        if (sgs != null && !sgs.isEmpty()) {
-            double cgpa = sgs.stream().mapToDouble(Double::doubleValue).average().orElse(0.0);
-            jdbc.update("UPDATE " + table + " SET cgpa = ? WHERE htno = ?", cgpa, htno);
+        String totalsTableName = college.toLowerCase() + "_sem_totals_" + dept.toLowerCase();
+        if (!tableCatalog.tableExists(totalsTableName)) {
+            jdbc.execute("CREATE TABLE IF NOT EXISTS " + totalsTable(college, dept) + " (" +
+                    "htno VARCHAR(20) NOT NULL, semester CHAR(3) NOT NULL, " +
+                    "points DECIMAL(8,2) NOT NULL, credits DECIMAL(6,2) NOT NULL, " +
+                    "PRIMARY KEY (htno, semester))");
+            tableCatalog.register(totalsTableName);
         }
+        ensureGradePointsTable(jdbc);
+        return table;
     }
 
-    public double calculateSGPAFromList(List<Subject> subjects) {
-        double totalPoints = 0, totalCredits = 0;
-        for (Subject subject : subjects) {
-            double gp = convertGradeToPoint(subject.getGrade());
-            if (gp >= 0 && subject.getCredit() != null && subject.getCredit() > 0) {
-                totalPoints += gp * subject.getCredit();
-                totalCredits += subject.getCredit();
-            }
-        }
-        return totalCredits == 0 ? 0.0 : BigDecimal.valueOf(totalPoints / totalCredits).setScale(2, RoundingMode.HALF_UP).doubleValue();
+    /**
+     * Sanitized name of the per-semester ledger: one row of credit-weighted points and credits per student and semester.
+     */
+    private String totalsTable(String college, String dept) {
+        return dynamicDbService.sanitizeTableName(college.toLowerCase() + "_sem_totals_" + dept.toLowerCase());
     }
 
-    private double convertGradeToPoint(String grade) {
-        return switch (grade.trim().toUpperCase()) {
-            case "A+" -> 10.0; case "A" -> 9.0; case "B" -> 8.0;
-            case "C" -> 7.0; case "D" -> 6.0; case "E" -> 5.0;
-            case "F" -> 0.0; default -> -1;
-        };
+    private static String semesterKey(String semester) {
+        return semester.replace("-", "_");
     }
 
     /**
-     * Extract college name from JdbcTemplate or use a default value
+     * Rebuild one semester from its results table: its ledger rows, the running totals and CGPA of the
+     * students it touches, and its SGPA column. Runs inside the caller's transaction. Returns the rows written.
      */
-    private String extractCollegeFromJdbc(JdbcTemplate jdbc) {
-        try {
-            // Try to get the college from the current context
-            String college = dynamicDbService.getCurrentCollege();
-            if (college != null && !college.isEmpty()) {
-                return college;
+    private int refreshSemester(JdbcTemplate jdbc, String resultsTable, String gradesTable, String totalsTable, String semester) {
+        refreshSemesterLedger(jdbc, resultsTable, totalsTable, semester);
+        // Before the SGPA column changes, so students who left the semester are still found by it
+        updateRunningTotals(jdbc, gradesTable, totalsTable, semester);
+        return storeSemesterSgpa(jdbc, gradesTable, totalsTable, semester);
+    }
+
+    /**
+     * Replace the ledger rows of one semester with the points and credits in its results table.
+     * The old rows are deleted first, so a student no longer in the table stops counting towards CGPA.
+     */
+    private void refreshSemesterLedger(JdbcTemplate jdbc, String resultsTable, String totalsTable, String semester) {
+        jdbc.update("DELETE FROM " + totalsTable + " WHERE semester = ?", semesterKey(semester));
+        jdbc.update("INSERT INTO " + totalsTable + " (htno, semester, points, credits) " +
+                "SELECT r.htno, ?, " +
+                "COALESCE(SUM(CASE WHEN " + VALID_SUBJECT + " THEN gp.points * r.credit END), 0), " +
+                "COALESCE(SUM(CASE WHEN " + VALID_SUBJECT + " THEN r.credit END), 0) " +
+                "FROM " + resultsTable + " r " +
+                "LEFT JOIN " + GRADE_POINTS_TABLE + " gp ON gp.grade = UPPER(TRIM(r.grade)) " +
+                "WHERE r.htno IS NOT NULL GROUP BY r.htno", semesterKey(semester));
+    }
+
+    /**
+     * Set the semester's SGPA column from its ledger rows, and clear it for students without one.
+     */
+    private int storeSemesterSgpa(JdbcTemplate jdbc, String gradesTable, String totalsTable, String semester) {
+        String column = "sem_" + semesterKey(semester);
+        jdbc.update("UPDATE " + gradesTable + " g LEFT JOIN " + totalsTable + " t ON t.htno = g.htno AND t.semester = ? " +
+                "SET g." + column + " = NULL WHERE g." + column + " IS NOT NULL AND t.htno IS NULL", semesterKey(semester));
+        return jdbc.update("INSERT INTO " + gradesTable + " (htno, " + column + ") " +
+                "SELECT t.htno, " + GPA_FROM_TOTALS + " FROM " + totalsTable + " t WHERE t.semester = ? " +
+                "ON DUPLICATE KEY UPDATE " + column + " = VALUES(" + column + ")", semesterKey(semester));
+    }
+
+    /**
+     * Re-add the ledger rows of the students in a semester (or of everyone when semester is null)
+     * into their running totals and credit-weighted CGPA. The students of a semester are those in
+     * its ledger plus those who still have its SGPA column set, i.e. who just left it. A student
+     * with no ledger rows left gets zero totals.
+     */
+    private int updateRunningTotals(JdbcTemplate jdbc, String gradesTable, String totalsTable, String semester) {
+        String students = semester == null ? "" :
+                " WHERE g.htno IN (SELECT htno FROM " + totalsTable + " WHERE semester = ?)" +
+                " OR g.sem_" + semesterKey(semester) + " IS NOT NULL";
+        Object[] args = semester == null ? new Object[0] : new Object[]{semesterKey(semester)};
+        return jdbc.update("UPDATE " + gradesTable + " g LEFT JOIN (" +
+                "SELECT htno, SUM(points) AS points, SUM(credits) AS credits FROM " + totalsTable +
+                " GROUP BY htno) t ON t.htno = g.htno " +
+                "SET g.total_points = COALESCE(t.points, 0), g.total_credits = COALESCE(t.credits, 0), " +
+                "g.cgpa = " + GPA_FROM_TOTALS + students, args);
+    }
+
+    /**
+     * ✅ Rebuild the ledger and running totals of one department from its results tables and
+     * return how many students had totals that did not match.
+     */
+    public int rebuildTotals(String college, String dept) {
+        JdbcTemplate jdbc = dynamicDbService.getJdbcTemplateForCollege(college);
+        String table = ensureGradesTable(jdbc, college, dept);
+        String totalsTable = totalsTable(college, dept);
+
+        Integer mismatches = dynamicDbService.getTransactionTemplate().execute(status -> {
+            jdbc.update("DELETE FROM " + totalsTable);
+            for (String semester : tableCatalog.getResultSemesters(college, dept)) {
+                String resultsTable = dynamicDbService.sanitizeTableName(
+                        college.toLowerCase() + "_results_" + dept.toLowerCase() + "_" + semester);
+                refreshSemesterLedger(jdbc, resultsTable, totalsTable, semester);
             }
 
-            // If that fails, try to extract from the JDBC URL
-            javax.sql.DataSource dataSource = jdbc.getDataSource();
-            if (dataSource != null) {
-                java.sql.Connection connection = dataSource.getConnection();
-                if (connection != null) {
-                    try {
-                        String url = connection.getMetaData().getURL();
-                        // Get the first college from the database
-                        List<String> colleges = dynamicDbService.getAllDatabases();
-                        if (!colleges.isEmpty()) {
-                            return colleges.get(0);
-                        }
-                    } finally {
-                        connection.close();
-                    }
-                }
+            Integer drifted = jdbc.queryForObject("SELECT COUNT(*) FROM " + table + " g JOIN (" +
+                    "SELECT htno, SUM(points) AS points, SUM(credits) AS credits FROM " + totalsTable +
+                    " GROUP BY htno) t ON t.htno = g.htno " +
+                    "WHERE g.total_points <> t.points OR g.total_credits <> t.credits " +
+                    "OR NOT (g.cgpa <=> " + GPA_FROM_TOTALS + ")", Integer.class);
+            updateRunningTotals(jdbc, table, totalsTable, null);
+            return drifted;
+        });
+        refreshRankings(college, dept, null);
+        return mismatches == null ? 0 : mismatches;
+    }
+
+    /**
+     * Re-rank a department after its SGPAs or CGPAs changed: the students of one semester, or
+     * everyone when semester is null. A failure only leaves the rankings stale.
+     */
+    private void refreshRankings(String college, String dept, String semester) {
+        // Separate, so a failed top achiever update doesn't also leave the rank index stale
+        try {
+            if (semester != null) {
+                topAchieversService.update(college, dept, semester);
+            } else {
+                topAchieversService.refresh(college, dept);
             }
         } catch (Exception e) {
-            log.error("Error extracting college from JDBC: {}", e.getMessage());
+            log.warn("⚠️ Could not refresh top achievers for {} {}: {}", college, dept, e.getMessage());
+        }
+        try {
+            rankIndexService.refresh(college, dept);
+        } catch (Exception e) {
+            log.warn("⚠️ Could not refresh the rank index for {} {}: {}", college, dept, e.getMessage());
         }
+    }
 
-        // Default to 'jntuh' if we can't determine the college
-        return "jntuh";
+    public double calculateSGPAFromList(List<Subject> subjects) {
+        return GradeUtil.gpa(subjects);
     }
 }
@@ -7,6 +7,7 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -14,6 +15,9 @@ import java.util.List;
 public class StudentService {
 
     private final DynamicDatabaseService dynamicDbService;
+    private final TableCatalog tableCatalog;
+    private final HtnoDirectory htnoDirectory;
+    private final CollegeFanOut collegeFanOut;
     private final PasswordEncoder passwordEncoder;
 
     /**
@@ -32,12 +36,14 @@ public class StudentService {
                 "email VARCHAR(150)," +
                 "password VARCHAR(100)," +
                 "reset_token VARCHAR(255))");
+        tableCatalog.register(tableName);
 
         List<String> existing = jdbc.queryForList("SELECT htno FROM " + table + " WHERE htno = ?", String.class, htno);
         if (!existing.isEmpty()) return false;
 
         jdbc.update("INSERT INTO " + table + " (fname, lname, htno, email, password) VALUES (?, ?, ?, ?, ?)",
                 fname, lname, htno, email, passwordEncoder.encode(password));
+        htnoDirectory.recordRegistration(jdbc, college, htno);
         return true;
     }
 
@@ -67,8 +73,7 @@ public class StudentService {
             String table = dynamicDbService.sanitizeTableName(tableName);
 
             // First check if the table exists
-            List<String> tables = jdbc.queryForList("SHOW TABLES LIKE ?", String.class, tableName);
-            if (tables.isEmpty()) {
+            if (!tableCatalog.hasStudentsTable(college)) {
                 log.warn("Table {} does not exist in database for college {}", tableName, college);
 
                 // Try to find the correct college if the table doesn't exist
@@ -111,7 +116,8 @@ public class StudentService {
     }
 
     /**
-     * ✅ Detect the correct college (database) based on HTNO by scanning all databases.
+     * ✅ Detect the correct college (database) based on HTNO.
+     * Answered from the HTNO directory; the tables are scanned when the directory does not know the HTNO.
      */
     public String detectCollegeForHtno(String htno) {
         if (htno == null || htno.trim().isEmpty()) {
@@ -120,8 +126,13 @@ public class StudentService {
         }
 
         try {
+            HtnoDirectory.Entry entry = htnoDirectory.lookup(htno);
+            if (entry != null) {
+                log.debug("HTNO {} found in directory for college: {}", htno, entry.getCollege());
+                return entry.getCollege();
+            }
+
             List<String> colleges = dynamicDbService.getAllDatabases();
-            log.info("Searching for HTNO {} in {} colleges: {}", htno, colleges.size(), colleges);
 
             if (colleges.isEmpty()) {
                 log.warn("❌ No colleges found in the database");
@@ -130,75 +141,22 @@ public class StudentService {
                 return "jntuh";
             }
 
-            JdbcTemplate jdbc = dynamicDbService.getJdbcTemplateForCollege(null);
-
-            // First, try to find in student tables
-            for (String college : colleges) {
-                try {
-                    // Check if the students table exists
-                    String studentsTable = college.toLowerCase() + "_students";
-                    String sanitizedTable = dynamicDbService.sanitizeTableName(studentsTable);
-                    List<String> tables = jdbc.queryForList("SHOW TABLES LIKE ?", String.class, studentsTable);
-
-                    log.debug("Checking table {} for HTNO {}", studentsTable, htno);
-                    if (!tables.isEmpty()) {
-                        Integer count = jdbc.queryForObject("SELECT COUNT(*) FROM " + sanitizedTable + " WHERE htno = ?", Integer.class, htno);
-                        log.debug("Count for HTNO {} in table {}: {}", htno, studentsTable, count);
-                        if (count != null && count > 0) {
-                            log.info("✅ HTNO {} found in students table for college: {}", htno, college);
-                            return college;
-                        }
-                    } else {
-                        log.debug("Table {} does not exist", studentsTable);
-                    }
-                } catch (Exception e) {
-                    // Log at info level to help diagnose issues
-                    log.info("⚠️ Skipping students table for college {} due to error: {}", college, e.getMessage());
-                }
-            }
-
-            // If not found in student tables, try to find in results tables
-            for (String college : colleges) {
-                try {
-                    // Look for result tables with this college prefix
-                    String resultsPattern = college.toLowerCase() + "_results_%";
-                    List<String> tables = jdbc.queryForList("SHOW TABLES LIKE ?", String.class, resultsPattern);
-
-                    log.debug("Found {} results tables for college {}: {}", tables.size(), college, tables);
-                    if (!tables.isEmpty()) {
-                        for (String table : tables) {
-                            try {
-                                String sanitizedTable = dynamicDbService.sanitizeTableName(table);
-                                Integer count = jdbc.queryForObject("SELECT COUNT(*) FROM " + sanitizedTable + " WHERE htno = ?", Integer.class, htno);
-                                log.debug("Count for HTNO {} in table {}: {}", htno, table, count);
-                                if (count != null && count > 0) {
-                                    log.info("✅ HTNO {} found in results table {} for college: {}", htno, table, college);
-                                    return college;
-                                }
-                            } catch (Exception e) {
-                                // Skip this table and try the next one
-                                log.debug("Could not query table {} for college {}: {}", table, college, e.getMessage());
-                            }
-                        }
-                    }
-                } catch (Exception e) {
-                    // Log at info level to help diagnose issues
-                    log.info("⚠️ Skipping results tables for college {} due to error: {}", college, e.getMessage());
-                }
+            // A miss can be a table the directory has not copied yet, so check the tables before defaulting
+            String college = scanCollegesForHtno(htno, colleges);
+            if (college != null) {
+                return college;
             }
 
             log.warn("❌ HTNO {} not found in any college", htno);
 
             // If we have at least one college, use the first one as a fallback
-            if (!colleges.isEmpty()) {
-                String defaultCollege = colleges.get(0);
-                log.info("Using first available college '{}' as fallback for HTNO {}", defaultCollege, htno);
-                return defaultCollege;
-            }
-
-            // If all else fails, use a hardcoded default
-            log.info("Using hardcoded default college 'jntuh' as last resort fallback");
-            return "jntuh";
+            String defaultCollege = colleges.get(0);
+            log.info("Using first available college '{}' as fallback for HTNO {}", defaultCollege, htno);
+            return defaultCollege;
+        } catch (CollegeFanOut.FanOutTimeoutException e) {
+            // The HTNO may well be in a college that didn't answer, so no fallback college here
+            log.warn("❌ Could not detect the college of HTNO {}: {}", htno, e.getMessage());
+            return null;
         } catch (Exception e) {
             log.error("❌ Error detecting college for HTNO {}: {}", htno, e.getMessage(), e);
             // Even if there's an error, try to return a default college
@@ -207,6 +165,52 @@ public class StudentService {
         }
     }
 
+    /**
+     * Find the college of an HTNO by scanning the students tables and then the results tables.
+     * Each stage queries every college at once and takes the earliest college, in list order, with a hit.
+     * Throws {@link CollegeFanOut.FanOutTimeoutException} when slow colleges leave the answer unknown.
+     */
+    private String scanCollegesForHtno(String htno, List<String> colleges) {
+        log.info("Searching for HTNO {} in {} colleges: {}", htno, colleges.size(), colleges);
+        JdbcTemplate jdbc = dynamicDbService.getJdbcTemplateForCollege(null);
+
+        // First, try to find in student tables
+        List<String> withStudents = colleges.stream().filter(tableCatalog::hasStudentsTable).collect(Collectors.toList());
+        String college = collegeFanOut.first("Students table scan for " + htno, withStudents, c -> {
+            String studentsTable = c.toLowerCase() + "_students";
+            Integer count = jdbc.queryForObject("SELECT COUNT(*) FROM " + dynamicDbService.sanitizeTableName(studentsTable) +
+                    " WHERE htno = ?", Integer.class, htno);
+            log.debug("Count for HTNO {} in table {}: {}", htno, studentsTable, count);
+            return count != null && count > 0 ? c : null;
+        });
+        if (college != null) {
+            log.info("✅ HTNO {} found in students table for college: {}", htno, college);
+            return college;
+        }
+
+        // If not found in student tables, try to find in results tables: one task per college, not per table,
+        // so a college with many semesters can't take every worker and connection of the fan-out
+        List<String> withResults = colleges.stream().filter(c -> !tableCatalog.getResultTables(c).isEmpty())
+                .collect(Collectors.toList());
+        college = collegeFanOut.first("Results table scan for " + htno, withResults, c -> {
+            for (String table : tableCatalog.getResultTables(c)) {
+                List<String> hits = jdbc.queryForList("SELECT htno FROM " + dynamicDbService.sanitizeTableName(table) +
+                        " WHERE htno = ? LIMIT 1", String.class, htno);
+                if (!hits.isEmpty()) {
+                    log.debug("HTNO {} found in results table {}", htno, table);
+                    return c;
+                }
+            }
+            return null;
+        });
+        if (college != null) {
+            log.info("✅ HTNO {} found in results tables for college: {}", htno, college);
+            return college;
+        }
+
+        return null;
+    }
+
     /**
      * ✅ Get registered email using HTNO by checking all *_students tables.
      */
@@ -339,9 +343,15 @@ public class StudentService {
     }
 
     /**
-     * ✅ Find department for a student by checking all result tables.
+     * ✅ Find department for a student from the HTNO directory, or by checking all result tables
+     * while the directory is not loaded yet.
      */
-    private String findDepartmentForHtno(String htno, String college) {
+    public String findDepartmentForHtno(String htno, String college) {
+        if (htnoDirectory.isLoaded()) {
+            HtnoDirectory.Entry entry = htnoDirectory.lookup(htno);
+            return entry != null && college.equalsIgnoreCase(entry.getCollege()) ? entry.getDept() : null;
+        }
+
         JdbcTemplate jdbc = dynamicDbService.getJdbcTemplateForCollege(college);
         String collegePrefix = college.toLowerCase() + "_results_";
 
@@ -350,13 +360,13 @@ public class StudentService {
             try {
                 // Check if any semester table for this department contains this HTNO
                 for (String sem : List.of("1_1", "1_2", "2_1", "2_2", "3_1", "3_2", "4_1", "4_2")) {
+                    // Check if table exists
+                    if (!tableCatalog.hasResultsTable(college, dept, sem)) continue;
+
                     String tableName = collegePrefix + dept.toLowerCase() + "_" + sem;
                     String table = dynamicDbService.sanitizeTableName(tableName);
 
                     try {
-                        // Check if table exists
-                        List<String> tables = jdbc.queryForList("SHOW TABLES LIKE ?", String.class, tableName);
-                        if (tables.isEmpty()) continue;
 
                         // Check if HTNO exists in this table
                         Integer count = jdbc.queryForObject("SELECT COUNT(*) FROM " + table + " WHERE htno = ?", Integer.class, htno);
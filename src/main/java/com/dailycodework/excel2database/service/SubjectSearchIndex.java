@@ -0,0 +1,411 @@
+package com.dailycodework.excel2database.service;
+
+import com.dailycodework.excel2database.domain.Subject;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * ✅ Trigram index from subject names to subject codes, for "subject name contains x" searches.
+ *
+ * A search used to run WHERE subname LIKE '%x%' AND grade = ? on every college's table,
+ * which no index can serve. Here the distinct subject names are split into trigrams, each
+ * pointing at a BitSet of names, so the names containing x are found by intersecting a few
+ * bitsets. The matching subject codes are then read through the (subcode, grade) index of
+ * the results table.
+ *
+ * The same names also feed an immutable word-prefix index per (dept, semester) for the
+ * suggestion box, which is rebuilt and swapped in whenever a table gains a new name.
+ *
+ * Tables are indexed in the background after startup and patched by the upload pipeline.
+ * A table that is not indexed yet falls back to the LIKE query.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SubjectSearchIndex {
+
+    private static final int GRAM = 3;
+
+    // Rows read per query by stream
+    private static final int STREAM_PAGE_SIZE = 500;
+
+    private static final Pattern RESULTS_TABLE = Pattern.compile("^[a-z0-9]+_results_([a-z0-9]+)_(\\d_\\d)$");
+
+    private final DynamicDatabaseService dynamicDbService;
+    private final TableCatalog tableCatalog;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Distinct lower-cased subject names, numbered from 0, and their first spelling as uploaded
+    private final List<String> names = new ArrayList<>();
+    private final List<String> displayNames = new ArrayList<>();
+    private final Map<String, Integer> nameIds = new HashMap<>();
+
+    // Trigram -> names containing it
+    private final Map<String, BitSet> grams = new HashMap<>();
+
+    // Results table -> name id -> subject codes with that name
+    private final Map<String, Map<Integer, Set<String>>> tables = new HashMap<>();
+
+    // "dept/semester" -> suggestions over the names of that department and semester in all colleges
+    private final Map<String, PrefixIndex> suggestions = new ConcurrentHashMap<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        Thread build = new Thread(() -> {
+            long start = System.currentTimeMillis();
+            int indexed = 0;
+            for (String college : tableCatalog.getColleges()) {
+                for (String table : tableCatalog.getResultTables(college)) {
+                    try {
+                        indexTable(college, table);
+                        indexed++;
+                    } catch (Exception e) {
+                        log.warn("⚠️ Could not index subjects of {}: {}", table, e.getMessage());
+                    }
+                }
+            }
+            log.info("🔎 Subject search index built for {} tables, {} names in {} ms", indexed, names.size(),
+                    System.currentTimeMillis() - start);
+        }, "subject-search-index");
+        build.setDaemon(true);
+        build.start();
+    }
+
+    /**
+     * ✅ Add the subjects of a results table from the database.
+     */
+    public void indexTable(String college, String tableName) {
+        JdbcTemplate jdbc = dynamicDbService.getJdbcTemplateForCollege(college);
+        List<Map<String, Object>> rows = jdbc.queryForList("SELECT DISTINCT subcode, subname FROM " +
+                dynamicDbService.sanitizeTableName(tableName) + " WHERE subcode IS NOT NULL AND subname IS NOT NULL");
+        lock.writeLock().lock();
+        try {
+            Map<Integer, Set<String>> subjects = tables.computeIfAbsent(tableName.toLowerCase(), t -> new HashMap<>());
+            for (Map<String, Object> row : rows) {
+                add(subjects, (String) row.get("subcode"), (String) row.get("subname"));
+            }
+            rebuildSuggestions(tableName);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * ✅ Add the subjects of uploaded rows. Call after the rows are saved: a table seen for the
+     * first time is indexed from the database, which then includes them.
+     */
+    public void record(String college, String tableName, List<Subject> subjects) {
+        String table = tableName.toLowerCase();
+        boolean indexed;
+        boolean complete;
+        lock.readLock().lock();
+        try {
+            Map<Integer, Set<String>> known = tables.get(table);
+            indexed = known != null;
+            complete = indexed && subjects.stream().allMatch(s -> isKnown(known, s));
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (complete) {
+            return;
+        }
+        if (!indexed) {
+            indexTable(college, tableName);
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            Map<Integer, Set<String>> known = tables.get(table);
+            for (Subject subject : subjects) {
+                add(known, subject.getSubcode(), subject.getSubname());
+            }
+            rebuildSuggestions(tableName);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * ✅ Rows of a results table whose subject name contains the text and whose grade matches.
+     */
+    public List<Map<String, Object>> search(JdbcTemplate jdbc, String tableName, String subject, String grade) {
+        Filter filter = filter(tableName, subject, grade);
+        if (filter == null) {
+            return new ArrayList<>();
+        }
+        List<Map<String, Object>> rows = jdbc.queryForList("SELECT htno, subname, grade, internals FROM " +
+                dynamicDbService.sanitizeTableName(tableName) + " WHERE " + filter.where, filter.args.toArray());
+        rows.removeIf(row -> !filter.matches(row.get("subname")));
+        return rows;
+    }
+
+    /**
+     * ✅ One page of {@link #search} in (htno, subcode) order, starting after the given key, or from the
+     * start when afterHtno is null. The rows are read through the unique (htno, subcode) index.
+     *
+     * The page may hold fewer than limit rows when some had another spelling of the name; the last
+     * row read is still returned as the key to continue from, or null when the table is exhausted.
+     */
+    public Page page(JdbcTemplate jdbc, String tableName, String subject, String grade,
+                     String afterHtno, String afterSubcode, int limit) {
+        Filter filter = filter(tableName, subject, grade);
+        if (filter == null) {
+            return new Page(new ArrayList<>(), null, null);
+        }
+        StringBuilder sql = new StringBuilder("SELECT htno, subcode, subname, grade, internals FROM ")
+                .append(dynamicDbService.sanitizeTableName(tableName)).append(" WHERE ").append(filter.where);
+        List<Object> args = new ArrayList<>(filter.args);
+        if (afterHtno != null) {
+            sql.append(" AND (htno > ? OR (htno = ? AND subcode > ?))");
+            args.add(afterHtno);
+            args.add(afterHtno);
+            args.add(afterSubcode);
+        }
+        sql.append(" ORDER BY htno, subcode LIMIT ?");
+        args.add(limit);
+
+        List<Map<String, Object>> rows = jdbc.queryForList(sql.toString(), args.toArray());
+        if (rows.size() < limit) {
+            rows.removeIf(row -> !filter.matches(row.get("subname")));
+            return new Page(rows, null, null);
+        }
+        Map<String, Object> last = rows.get(rows.size() - 1);
+        String lastHtno = (String) last.get("htno");
+        String lastSubcode = (String) last.get("subcode");
+        rows.removeIf(row -> !filter.matches(row.get("subname")));
+        return new Page(rows, lastHtno, lastSubcode);
+    }
+
+    /**
+     * ✅ Pass every row of {@link #search} to the consumer, reading the table through {@link #page}
+     * in keyset pages. A connection is only held while one page is read, never while the consumer
+     * writes, so a slow client can't pin a connection or an open cursor on the table.
+     */
+    public void stream(JdbcTemplate jdbc, String tableName, String subject, String grade, Consumer<Map<String, Object>> consumer) {
+        String afterHtno = null;
+        String afterSubcode = null;
+        do {
+            Page page = page(jdbc, tableName, subject, grade, afterHtno, afterSubcode, STREAM_PAGE_SIZE);
+            for (Map<String, Object> row : page.getRows()) {
+                row.remove("subcode");
+                consumer.accept(row);
+            }
+            afterHtno = page.getLastHtno();
+            afterSubcode = page.getLastSubcode();
+        } while (afterHtno != null);
+    }
+
+    /**
+     * WHERE clause selecting the rows of a table for a subject and grade, or null if no row can match.
+     */
+    private Filter filter(String tableName, String subject, String grade) {
+        String needle = subject.toLowerCase();
+        Set<String> subcodes = matchingSubcodes(tableName, subject);
+        if (subcodes == null) {
+            log.debug("{} is not in the subject search index yet, using LIKE", tableName);
+            return new Filter("subname LIKE ? AND grade = ?", List.of("%" + subject + "%", grade), needle);
+        }
+        if (subcodes.isEmpty()) {
+            return null;
+        }
+        List<Object> args = new ArrayList<>(subcodes);
+        args.add(grade);
+        String placeholders = String.join(", ", Collections.nCopies(subcodes.size(), "?"));
+        return new Filter("subcode IN (" + placeholders + ") AND grade = ?", args, needle);
+    }
+
+    /**
+     * Subject codes of a table whose name contains the text, or null if the table is not indexed.
+     */
+    private Set<String> matchingSubcodes(String tableName, String subject) {
+        String needle = subject.toLowerCase();
+        lock.readLock().lock();
+        try {
+            Map<Integer, Set<String>> subjects = tables.get(tableName.toLowerCase());
+            if (subjects == null) {
+                return null;
+            }
+            BitSet candidates = candidates(needle);
+            Set<String> subcodes = new TreeSet<>();
+            subjects.forEach((nameId, codes) -> {
+                if ((candidates == null || candidates.get(nameId)) && names.get(nameId).contains(needle)) {
+                    subcodes.addAll(codes);
+                }
+            });
+            return subcodes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Names that contain every trigram of the text; null when the text is too short to have one.
+     */
+    private BitSet candidates(String needle) {
+        if (needle.length() < GRAM) {
+            return null;
+        }
+        BitSet result = null;
+        for (int i = 0; i + GRAM <= needle.length(); i++) {
+            BitSet posting = grams.get(needle.substring(i, i + GRAM));
+            if (posting == null) {
+                return new BitSet();
+            }
+            if (result == null) {
+                result = (BitSet) posting.clone();
+            } else {
+                result.and(posting);
+            }
+            if (result.isEmpty()) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    private boolean isKnown(Map<Integer, Set<String>> known, Subject subject) {
+        if (subject.getSubcode() == null || subject.getSubname() == null) {
+            return true;
+        }
+        Integer nameId = nameIds.get(subject.getSubname().toLowerCase());
+        return nameId != null && known.getOrDefault(nameId, Set.of()).contains(subject.getSubcode());
+    }
+
+    /**
+     * Called with the write lock held.
+     */
+    private void add(Map<Integer, Set<String>> subjects, String subcode, String subname) {
+        if (subcode == null || subname == null) {
+            return;
+        }
+        String name = subname.toLowerCase();
+        int nameId = nameIds.computeIfAbsent(name, n -> {
+            names.add(n);
+            displayNames.add(subname.trim());
+            int id = names.size() - 1;
+            for (int i = 0; i + GRAM <= n.length(); i++) {
+                grams.computeIfAbsent(n.substring(i, i + GRAM), g -> new BitSet()).set(id);
+            }
+            return id;
+        });
+        subjects.computeIfAbsent(nameId, id -> new TreeSet<>()).add(subcode);
+    }
+
+    /**
+     * ✅ Up to limit subject names of a department and semester with a word starting with the query,
+     * or null when none of its tables are indexed yet.
+     */
+    public List<String> suggest(String dept, String semester, String query, int limit) {
+        PrefixIndex index = suggestions.get(dept.toLowerCase() + "/" + semester.replace("-", "_"));
+        return index == null ? null : index.find(query.trim().toLowerCase(), limit);
+    }
+
+    /**
+     * Replace the suggestions of the table's (dept, semester). Called with the write lock held.
+     */
+    private void rebuildSuggestions(String tableName) {
+        Matcher m = RESULTS_TABLE.matcher(tableName.toLowerCase());
+        if (!m.matches()) {
+            return;
+        }
+        String suffix = "_results_" + m.group(1) + "_" + m.group(2);
+        Set<Integer> nameSet = new TreeSet<>();
+        tables.forEach((table, subjects) -> {
+            if (table.endsWith(suffix) && RESULTS_TABLE.matcher(table).matches()) {
+                nameSet.addAll(subjects.keySet());
+            }
+        });
+        List<String> keys = new ArrayList<>();
+        List<String> values = new ArrayList<>();
+        for (int nameId : nameSet) {
+            String name = names.get(nameId);
+            // One key per word, so "struct" also finds "Data Structures"
+            for (int i = 0; i < name.length(); i++) {
+                if (!Character.isWhitespace(name.charAt(i)) && (i == 0 || !Character.isLetterOrDigit(name.charAt(i - 1)))) {
+                    keys.add(name.substring(i));
+                    values.add(displayNames.get(nameId));
+                }
+            }
+        }
+        suggestions.put(m.group(1) + "/" + m.group(2), new PrefixIndex(keys, values));
+    }
+
+    /**
+     * Word suffixes of subject names in sorted order; a prefix query is a binary search and a short scan.
+     */
+    private static final class PrefixIndex {
+        private final String[] keys;
+        private final String[] values;
+
+        PrefixIndex(List<String> keys, List<String> values) {
+            Integer[] order = new Integer[keys.size()];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, Comparator.comparing(keys::get));
+            this.keys = new String[order.length];
+            this.values = new String[order.length];
+            for (int i = 0; i < order.length; i++) {
+                this.keys[i] = keys.get(order[i]);
+                this.values[i] = values.get(order[i]);
+            }
+        }
+
+        List<String> find(String prefix, int limit) {
+            int position = Arrays.binarySearch(keys, prefix);
+            Set<String> found = new LinkedHashSet<>();
+            for (int i = position < 0 ? -position - 1 : position; i < keys.length && found.size() < limit; i++) {
+                if (!keys[i].startsWith(prefix)) {
+                    break;
+                }
+                found.add(values[i]);
+            }
+            return new ArrayList<>(found);
+        }
+    }
+
+    private static final class Filter {
+        private final String where;
+        private final List<Object> args;
+        private final String needle;
+
+        Filter(String where, List<Object> args, String needle) {
+            this.where = where;
+            this.args = args;
+            this.needle = needle;
+        }
+
+        /**
+         * A code can carry more than one spelling of its name; only rows whose own name matches count.
+         */
+        boolean matches(Object subname) {
+            return subname != null && subname.toString().toLowerCase().contains(needle);
+        }
+    }
+
+    /**
+     * Rows of one page and the (htno, subcode) key to continue after, null when there is nothing more.
+     */
+    @Getter
+    @AllArgsConstructor
+    public static final class Page {
+        private final List<Map<String, Object>> rows;
+        private final String lastHtno;
+        private final String lastSubcode;
+    }
+}
@@ -1,47 +1,137 @@
 package com.dailycodework.excel2database.service;
 
 import com.dailycodework.excel2database.domain.Subject;
+import com.dailycodework.excel2database.domain.UploadStats;
+import com.dailycodework.excel2database.util.GradeUtil;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.ArrayList;
 import java.util.List;
 
 @Service
 @RequiredArgsConstructor
+@Slf4j
 public class SubjectService {
 
     private final DynamicDatabaseService dynamicDbService;
+    private final TableCatalog tableCatalog;
+    private final HtnoDirectory htnoDirectory;
+    private final ResultTableIndexer resultTableIndexer;
 
-    public void saveSubjectsToDynamicSemesterTable(List<Subject> subjects, String dept, String semester, String college) {
+    @Value("${app.upload.batch-size:1000}")
+    private int batchSize;
+
+    public UploadStats saveSubjectsToDynamicSemesterTable(List<Subject> subjects, String dept, String semester, String college) {
+        long start = System.currentTimeMillis();
+        String tableName = prepareResultsTable(dept, semester, college);
+        boolean batched = writeSubjects(tableName, subjects, dept, semester, college);
+
+        UploadStats stats = new UploadStats(subjects.size(), System.currentTimeMillis() - start,
+                batched ? "batched" : "row-by-row");
+        log.info("📥 Saved results to {}: {}", tableName, stats);
+        return stats;
+    }
+
+    /**
+     * ✅ Create the results table for a department and semester if needed. Returns its name.
+     */
+    public String prepareResultsTable(String dept, String semester, String college) {
         JdbcTemplate jdbc = dynamicDbService.getJdbcTemplateForCollege(college);
         String baseTableName = "results_" + dept.toLowerCase() + "_" + semester.replace("-", "_");
         String tableName = college.toLowerCase() + "_" + baseTableName;
         String table = dynamicDbService.sanitizeTableName(tableName);
 
+        // New tables get their indexes up front; older tables are upgraded by ResultTableIndexer
         jdbc.execute("CREATE TABLE IF NOT EXISTS " + table + " (" +
                 "sno INT, htno VARCHAR(255), subcode VARCHAR(255), subname VARCHAR(255), " +
-                "internals INT, grade VARCHAR(10), credit FLOAT)");
-
-        for (Subject subject : subjects) {
-            String check = "SELECT grade FROM " + table + " WHERE htno = ? AND subcode = ?";
-            List<String> grades = jdbc.queryForList(check, String.class, subject.getHtno(), subject.getSubcode());
-
-            if (!grades.isEmpty()) {
-                double old = convertGradeToPoint(grades.get(0));
-                double now = convertGradeToPoint(subject.getGrade());
-                if (now > old) {
-                    jdbc.update("UPDATE " + table + " SET subname=?, internals=?, grade=?, credit=? WHERE htno=? AND subcode=?",
-                            subject.getSubname(), subject.getInternals(), subject.getGrade(), subject.getCredit(),
-                            subject.getHtno(), subject.getSubcode());
+                "internals INT, grade VARCHAR(10), credit FLOAT, " +
+                ResultTableIndexer.indexClauses() + ")");
+        tableCatalog.register(tableName);
+        return tableName;
+    }
+
+    /**
+     * ✅ Write rows to a results table created by {@link #prepareResultsTable}.
+     * Can be called repeatedly with consecutive chunks of an upload. Returns whether the batched path was used.
+     */
+    public boolean writeSubjects(String tableName, List<Subject> subjects, String dept, String semester, String college) {
+        JdbcTemplate jdbc = dynamicDbService.getJdbcTemplateForCollege(college);
+        String table = dynamicDbService.sanitizeTableName(tableName);
+
+        // The upsert needs the (htno, subcode) key; tables that don't have it yet use the row-by-row path
+        boolean batched = resultTableIndexer.hasUniqueKey(jdbc, tableName);
+        if (batched) {
+            upsertInBatches(jdbc, table, subjects);
+        } else {
+            log.info("Table {} has no unique (htno, subcode) key yet, saving row by row", tableName);
+            saveRowByRow(jdbc, table, subjects);
+        }
+        tableCatalog.bumpVersion(tableName);
+
+        htnoDirectory.recordResults(jdbc, college, dept, semester,
+                subjects.stream().map(Subject::getHtno).toList());
+        return batched;
+    }
+
+    /**
+     * ✅ Write the rows as chunked INSERT ... ON DUPLICATE KEY UPDATE, one transaction per chunk.
+     * An existing row is only replaced when the new grade is worth more points.
+     */
+    private void upsertInBatches(JdbcTemplate jdbc, String table, List<Subject> subjects) {
+        String better = GradeUtil.pointsSql("VALUES(grade)") + " > " + GradeUtil.pointsSql("grade");
+        // grade is assigned last so the other columns still compare against the old grade
+        String sql = "INSERT INTO " + table + " (sno, htno, subcode, subname, internals, grade, credit) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE " +
+                "subname = IF(" + better + ", VALUES(subname), subname), " +
+                "internals = IF(" + better + ", VALUES(internals), internals), " +
+                "credit = IF(" + better + ", VALUES(credit), credit), " +
+                "grade = IF(" + better + ", VALUES(grade), grade)";
+
+        TransactionTemplate tx = dynamicDbService.getTransactionTemplate();
+        for (int from = 0; from < subjects.size(); from += batchSize) {
+            List<Subject> chunk = subjects.subList(from, Math.min(from + batchSize, subjects.size()));
+            tx.executeWithoutResult(status ->
+                    jdbc.batchUpdate(sql, chunk, chunk.size(), (ps, subject) -> {
+                        ps.setInt(1, subject.getSno());
+                        ps.setString(2, subject.getHtno());
+                        ps.setString(3, subject.getSubcode());
+                        ps.setString(4, subject.getSubname());
+                        ps.setObject(5, subject.getInternals());
+                        ps.setString(6, subject.getGrade());
+                        ps.setObject(7, subject.getCredit());
+                    }));
+        }
+    }
+
+    /**
+     * Legacy path for tables without the unique key: look up each row, then update or insert it.
+     */
+    private void saveRowByRow(JdbcTemplate jdbc, String table, List<Subject> subjects) {
+        dynamicDbService.getTransactionTemplate().executeWithoutResult(status -> {
+            for (Subject subject : subjects) {
+                String check = "SELECT grade FROM " + table + " WHERE htno = ? AND subcode = ?";
+                List<String> grades = jdbc.queryForList(check, String.class, subject.getHtno(), subject.getSubcode());
+
+                if (!grades.isEmpty()) {
+                    double old = GradeUtil.gradePoint(grades.get(0));
+                    double now = GradeUtil.gradePoint(subject.getGrade());
+                    if (now > old) {
+                        jdbc.update("UPDATE " + table + " SET subname=?, internals=?, grade=?, credit=? WHERE htno=? AND subcode=?",
+                                subject.getSubname(), subject.getInternals(), subject.getGrade(), subject.getCredit(),
+                                subject.getHtno(), subject.getSubcode());
+                    }
+                } else {
+                    jdbc.update("INSERT INTO " + table + " (sno, htno, subcode, subname, internals, grade, credit) VALUES (?, ?, ?, ?, ?, ?, ?)",
+                            subject.getSno(), subject.getHtno(), subject.getSubcode(), subject.getSubname(),
+                            subject.getInternals(), subject.getGrade(), subject.getCredit());
                 }
-            } else {
-                jdbc.update("INSERT INTO " + table + " (sno, htno, subcode, subname, internals, grade, credit) VALUES (?, ?, ?, ?, ?, ?, ?)",
-                        subject.getSno(), subject.getHtno(), subject.getSubcode(), subject.getSubname(),
-                        subject.getInternals(), subject.getGrade(), subject.getCredit());
             }
-        }
+        });
     }
 
     public List<Subject> getAllSubjectsFromDynamicTable(String dept, String semester, String college) {
@@ -64,14 +154,10 @@ public class SubjectService {
     }
 
     public List<String> getExistingResultTablesForDept(String dept, String college) {
-        JdbcTemplate jdbc = dynamicDbService.getJdbcTemplateForCollege(college);
-        String collegePrefix = college.toLowerCase() + "_results_" + dept.toLowerCase() + "_";
         List<String> found = new ArrayList<>();
 
         for (String sem : List.of("1_1", "1_2", "2_1", "2_2", "3_1", "3_2", "4_1", "4_2")) {
-            String tableName = collegePrefix + sem;
-            List<String> tables = jdbc.queryForList("SHOW TABLES LIKE ?", String.class, tableName);
-            if (!tables.isEmpty()) found.add(sem.replace("_", "-"));
+            if (tableCatalog.hasResultsTable(college, dept, sem)) found.add(sem.replace("_", "-"));
         }
         return found;
     }
@@ -81,6 +167,7 @@ public class SubjectService {
         String collegePrefix = college.toLowerCase() + "_results_" + dept.toLowerCase() + "_";
 
         for (String sem : List.of("1_1", "1_2", "2_1", "2_2", "3_1", "3_2", "4_1", "4_2")) {
+            if (!tableCatalog.hasResultsTable(college, dept, sem)) continue;
             String tableName = collegePrefix + sem;
             String table = dynamicDbService.sanitizeTableName(tableName);
             try {
@@ -90,12 +177,4 @@ public class SubjectService {
         }
         return false;
     }
-
-    private double convertGradeToPoint(String grade) {
-        return switch (grade.trim().toUpperCase()) {
-            case "A+" -> 10.0; case "A" -> 9.0; case "B" -> 8.0;
-            case "C" -> 7.0; case "D" -> 6.0; case "E" -> 5.0;
-            case "F" -> 0.0; default -> -1;
-        };
-    }
 }
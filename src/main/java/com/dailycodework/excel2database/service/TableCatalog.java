@@ -0,0 +1,288 @@
+package com.dailycodework.excel2database.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * ✅ In-memory index of the college tables in the main database.
+ *
+ * All tables follow a naming scheme (college prefix + kind + department/semester),
+ * so instead of running "SHOW TABLES LIKE ?" before every query the services look
+ * the table up here. The index is loaded once, updated whenever a service creates a
+ * table, and reloaded periodically to pick up tables created outside the application.
+ *
+ * Reads work on an immutable snapshot and never block; writers replace the snapshot.
+ */
+@Component
+@Slf4j
+public class TableCatalog {
+
+    private static final Pattern RESULTS_TABLE = Pattern.compile("^([a-z0-9]+)_results_([a-z0-9]+)_(\\d+_\\d+)$");
+    private static final Pattern STUDENTS_TABLE = Pattern.compile("^([a-z0-9]+)_students$");
+    private static final Pattern TEACHERS_TABLE = Pattern.compile("^([a-z0-9]+)_([a-z0-9]+)_teachers$");
+    private static final Pattern GRADES_TABLE = Pattern.compile("^([a-z0-9]+)_grades_([a-z0-9]+)$");
+
+    // List of system databases to exclude when listing available colleges
+    private static final List<String> SYSTEM_DATABASES = List.of(
+            "mysql", "information_schema", "performance_schema", "sys"
+    );
+
+    // Shared tables that are not owned by a college
+    private static final Set<String> SHARED_TABLES = Set.of(HtnoDirectory.TABLE_NAME, HtnoDirectory.SOURCES_TABLE,
+            SgpaService.GRADE_POINTS_TABLE);
+
+    private volatile Snapshot snapshot = Snapshot.build(Set.of());
+    private volatile long lastLoadedAt;
+
+    // How often the catalog changes, for monitoring
+    private final LongAdder fullReloads = new LongAdder();
+    private final LongAdder incrementalUpdates = new LongAdder();
+
+    // Table name -> version, bumped whenever the application changes its rows
+    private final Map<String, AtomicLong> versions = new ConcurrentHashMap<>();
+    private volatile long lastReloadMillis;
+
+    /**
+     * ✅ Replace the catalog with the tables currently present in the database.
+     */
+    public synchronized void reload(JdbcTemplate jdbc) {
+        try {
+            long start = System.currentTimeMillis();
+            List<String> tables = jdbc.queryForList("SHOW TABLES", String.class);
+            snapshot = Snapshot.build(tables);
+            lastLoadedAt = System.currentTimeMillis();
+            lastReloadMillis = lastLoadedAt - start;
+            fullReloads.increment();
+            log.info("📚 Table catalog loaded with {} tables and {} colleges", snapshot.tables.size(), snapshot.collegeNames.size());
+        } catch (Exception e) {
+            log.warn("⚠️ Could not reload table catalog, keeping previous snapshot: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * ✅ Record a table that was just created by the application.
+     */
+    public void register(String tableName) {
+        String name = normalize(tableName);
+        if (snapshot.tables.contains(name)) {
+            return;
+        }
+        synchronized (this) {
+            Snapshot current = snapshot;
+            if (current.tables.contains(name)) {
+                return;
+            }
+            Set<String> tables = new HashSet<>(current.tables);
+            tables.add(name);
+            snapshot = Snapshot.build(tables);
+            incrementalUpdates.increment();
+            log.debug("Registered table {} in catalog", name);
+        }
+    }
+
+    /**
+     * ✅ Version of a table's contents, for caches of data derived from it. Starts at 0 after a restart.
+     */
+    public long getVersion(String tableName) {
+        AtomicLong version = versions.get(normalize(tableName));
+        return version == null ? 0 : version.get();
+    }
+
+    /**
+     * ✅ Record that rows of a table were written. Call after the write has committed.
+     */
+    public void bumpVersion(String tableName) {
+        versions.computeIfAbsent(normalize(tableName), t -> new AtomicLong()).incrementAndGet();
+    }
+
+    /**
+     * ✅ Colleges found in the table prefixes, in alphabetical order.
+     */
+    public List<String> getColleges() {
+        return snapshot.collegeNames;
+    }
+
+    public boolean isLoaded() {
+        return lastLoadedAt > 0;
+    }
+
+    /**
+     * ✅ Catalog refresh counters.
+     */
+    public Map<String, Object> getStatistics() {
+        Snapshot current = snapshot;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("tables", current.tables.size());
+        stats.put("colleges", current.collegeNames.size());
+        stats.put("fullReloads", fullReloads.sum());
+        stats.put("incrementalUpdates", incrementalUpdates.sum());
+        stats.put("lastReloadMillis", lastReloadMillis);
+        stats.put("lastLoadedAt", lastLoadedAt);
+        return stats;
+    }
+
+    public boolean tableExists(String tableName) {
+        return tableName != null && snapshot.tables.contains(normalize(tableName));
+    }
+
+    public boolean hasStudentsTable(String college) {
+        CollegeTables tables = collegeTables(college);
+        return tables != null && tables.studentsTable;
+    }
+
+    public boolean hasGradesTable(String college, String dept) {
+        CollegeTables tables = collegeTables(college);
+        return tables != null && dept != null && tables.gradesDepts.contains(dept.toLowerCase());
+    }
+
+    public boolean hasResultsTable(String college, String dept, String semester) {
+        CollegeTables tables = collegeTables(college);
+        if (tables == null || dept == null || semester == null) {
+            return false;
+        }
+        SortedSet<String> semesters = tables.resultSemesters.get(dept.toLowerCase());
+        return semesters != null && semesters.contains(semester.replace("-", "_"));
+    }
+
+    /**
+     * ✅ Semesters (as "1_1", "1_2", ...) that have a results table for the department.
+     */
+    public List<String> getResultSemesters(String college, String dept) {
+        CollegeTables tables = collegeTables(college);
+        if (tables == null || dept == null) {
+            return List.of();
+        }
+        SortedSet<String> semesters = tables.resultSemesters.get(dept.toLowerCase());
+        return semesters == null ? List.of() : List.copyOf(semesters);
+    }
+
+    /**
+     * ✅ Departments of a college that have at least one results table.
+     */
+    public List<String> getResultDepartments(String college) {
+        CollegeTables tables = collegeTables(college);
+        return tables == null ? List.of() : List.copyOf(tables.resultSemesters.keySet());
+    }
+
+    /**
+     * ✅ Full names of all results tables of a college.
+     */
+    public List<String> getResultTables(String college) {
+        CollegeTables tables = collegeTables(college);
+        if (tables == null) {
+            return List.of();
+        }
+        List<String> names = new ArrayList<>();
+        String prefix = college.toLowerCase() + "_results_";
+        tables.resultSemesters.forEach((dept, semesters) ->
+                semesters.forEach(sem -> names.add(prefix + dept + "_" + sem)));
+        return names;
+    }
+
+    /**
+     * ✅ Full names of the results tables of one department of a college.
+     */
+    public List<String> getResultTables(String college, String dept) {
+        if (college == null || dept == null) {
+            return List.of();
+        }
+        String prefix = college.toLowerCase() + "_results_" + dept.toLowerCase() + "_";
+        return getResultSemesters(college, dept).stream().map(sem -> prefix + sem).toList();
+    }
+
+    /**
+     * ✅ Full names of all teacher tables.
+     */
+    public List<String> getTeacherTables() {
+        return snapshot.teacherTables;
+    }
+
+    public long getLastLoadedAt() {
+        return lastLoadedAt;
+    }
+
+    private CollegeTables collegeTables(String college) {
+        return college == null ? null : snapshot.colleges.get(college.toLowerCase());
+    }
+
+    private static String normalize(String tableName) {
+        return tableName.replace("`", "").toLowerCase();
+    }
+
+    /**
+     * Tables of a single college, grouped by kind.
+     */
+    private static final class CollegeTables {
+        private boolean studentsTable;
+        private final Map<String, SortedSet<String>> resultSemesters = new TreeMap<>();
+        private final Set<String> gradesDepts = new HashSet<>();
+    }
+
+    /**
+     * Immutable view of the catalog. Never modified after {@link #build} returns.
+     */
+    private static final class Snapshot {
+        private final Set<String> tables;
+        private final Map<String, CollegeTables> colleges;
+        private final List<String> collegeNames;
+        private final List<String> teacherTables;
+
+        private Snapshot(Set<String> tables, Map<String, CollegeTables> colleges,
+                         List<String> collegeNames, List<String> teacherTables) {
+            this.tables = tables;
+            this.colleges = colleges;
+            this.collegeNames = collegeNames;
+            this.teacherTables = teacherTables;
+        }
+
+        static Snapshot build(Collection<String> tableNames) {
+            Set<String> tables = new HashSet<>();
+            Map<String, CollegeTables> colleges = new HashMap<>();
+            List<String> teacherTables = new ArrayList<>();
+            SortedSet<String> collegeNames = new TreeSet<>();
+
+            for (String tableName : tableNames) {
+                String name = normalize(tableName);
+                tables.add(name);
+
+                // Extract college names from table prefixes
+                int underscoreIndex = name.indexOf('_');
+                if (underscoreIndex > 0 && !SYSTEM_DATABASES.contains(name.substring(0, underscoreIndex))
+                        && !SHARED_TABLES.contains(name)) {
+                    collegeNames.add(name.substring(0, underscoreIndex));
+                }
+
+                Matcher m = RESULTS_TABLE.matcher(name);
+                if (m.matches()) {
+                    colleges.computeIfAbsent(m.group(1), c -> new CollegeTables())
+                            .resultSemesters.computeIfAbsent(m.group(2), d -> new TreeSet<>()).add(m.group(3));
+                    continue;
+                }
+                m = STUDENTS_TABLE.matcher(name);
+                if (m.matches()) {
+                    colleges.computeIfAbsent(m.group(1), c -> new CollegeTables()).studentsTable = true;
+                    continue;
+                }
+                m = GRADES_TABLE.matcher(name);
+                if (m.matches()) {
+                    colleges.computeIfAbsent(m.group(1), c -> new CollegeTables()).gradesDepts.add(m.group(2));
+                    continue;
+                }
+                m = TEACHERS_TABLE.matcher(name);
+                if (m.matches()) {
+                    teacherTables.add(name);
+                }
+            }
+            return new Snapshot(Collections.unmodifiableSet(tables), colleges,
+                    List.copyOf(collegeNames), List.copyOf(teacherTables));
+        }
+    }
+}
@@ -15,6 +15,7 @@ import java.util.List;
 public class TeacherService {
 
     private final DynamicDatabaseService dynamicDbService;
+    private final TableCatalog tableCatalog;
     private final PasswordEncoder passwordEncoder;
 
     public boolean registerTeacher(Teacher teacher, String college) {
@@ -32,6 +33,7 @@ public class TeacherService {
                 "password VARCHAR(100), " +
                 "role VARCHAR(20), " +
                 "reset_token VARCHAR(255))");
+        tableCatalog.register(tableName);
 
         if ("HOD".equalsIgnoreCase(teacher.getRole())) {
             List<String> hodExists = jdbc.queryForList("SELECT email FROM " + table + " WHERE role = 'HOD'", String.class);
@@ -75,7 +77,7 @@ public class TeacherService {
 
     public String[] findCollegeAndDeptByFirstName(String firstName) {
         JdbcTemplate jdbc = dynamicDbService.getJdbcTemplateForCollege(null);
-        List<String> tables = jdbc.queryForList("SHOW TABLES LIKE '%_teachers'", String.class);
+        List<String> tables = tableCatalog.getTeacherTables();
 
         for (String tableName : tables) {
             try {
@@ -100,7 +102,7 @@ public class TeacherService {
 
     public String getEmailByUsername(String username) {
         JdbcTemplate jdbc = dynamicDbService.getJdbcTemplateForCollege(null);
-        List<String> tables = jdbc.queryForList("SHOW TABLES LIKE '%_teachers'", String.class);
+        List<String> tables = tableCatalog.getTeacherTables();
 
         for (String tableName : tables) {
             try {
@@ -119,7 +121,7 @@ public class TeacherService {
 
     public void storeResetToken(String email, String token) {
         JdbcTemplate jdbc = dynamicDbService.getJdbcTemplateForCollege(null);
-        List<String> tables = jdbc.queryForList("SHOW TABLES LIKE '%_teachers'", String.class);
+        List<String> tables = tableCatalog.getTeacherTables();
 
         for (String tableName : tables) {
             try {
@@ -132,7 +134,7 @@ public class TeacherService {
 
     public boolean updatePasswordByToken(String token, String newPassword) {
         JdbcTemplate jdbc = dynamicDbService.getJdbcTemplateForCollege(null);
-        List<String> tables = jdbc.queryForList("SHOW TABLES LIKE '%_teachers'", String.class);
+        List<String> tables = tableCatalog.getTeacherTables();
 
         for (String tableName : tables) {
             try {
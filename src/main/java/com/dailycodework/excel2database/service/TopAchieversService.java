@@ -0,0 +1,342 @@
+package com.dailycodework.excel2database.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+/**
+ * ✅ Keeps the top students by SGPA per (college, dept, semester) and by CGPA per (college, dept).
+ *
+ * {@link #refresh} reads a department's grades table once and feeds every row through bounded
+ * min-heaps of size K, one per semester plus one for CGPA. Each heap is then frozen into a
+ * sorted list. After {@link SgpaService} writes a semester it calls {@link #update}, which
+ * reads only the students of that semester and offers their new SGPA and CGPA into the
+ * existing boards. A full rebuild is left for when a student already on a full board drops,
+ * since the heap alone can't tell who takes the freed place.
+ *
+ * Reads only copy a prefix of the lists and never touch the database: a department that is
+ * not loaded yet reads as empty and is loaded in the background.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TopAchieversService {
+
+    private static final String[] SEMESTERS = {"1_1", "1_2", "2_1", "2_2", "3_1", "3_2", "4_1", "4_2"};
+
+    // Highest score first, ties by roll number
+    private static final Comparator<Achiever> RANKING = Comparator.comparingDouble(Achiever::getScore).reversed()
+            .thenComparing(Achiever::getHtno);
+
+    private final DynamicDatabaseService dynamicDbService;
+    private final TableCatalog tableCatalog;
+
+    @Value("${app.ranking.top-k:10}")
+    private int topK;
+
+    // "college/dept" -> boards of that department
+    private final Map<String, DepartmentBoards> boards = new ConcurrentHashMap<>();
+
+    // Writers of one department take its lock, so a rebuild and an update can't overwrite each other
+    private final Map<String, Object> locks = new ConcurrentHashMap<>();
+
+    // Departments waiting for a background load, and the single thread loading them
+    private final Set<String> loading = ConcurrentHashMap.newKeySet();
+    private final ExecutorService loader = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "top-achievers-loader");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * ✅ Top n students of a semester by SGPA. All colleges are merged when college is null.
+     */
+    public List<Achiever> topBySgpa(String college, String dept, String semester, int n) {
+        String key = semester.replace("-", "_");
+        return top(college, dept, n, b -> b.sgpa.getOrDefault(key, List.of()));
+    }
+
+    /**
+     * ✅ Top n students of a department by CGPA. All colleges are merged when college is null.
+     */
+    public List<Achiever> topByCgpa(String college, String dept, int n) {
+        return top(college, dept, n, b -> b.cgpa);
+    }
+
+    private List<Achiever> top(String college, String dept, int n, Function<DepartmentBoards, List<Achiever>> board) {
+        int limit = Math.max(0, Math.min(n, topK));
+        if (college != null && !college.isBlank()) {
+            List<Achiever> ranked = board.apply(boardsOf(college.toLowerCase(), dept.toLowerCase()));
+            return ranked.subList(0, Math.min(limit, ranked.size()));
+        }
+        // Each college's list is already sorted; merging the first n of each is enough
+        List<Achiever> merged = new ArrayList<>();
+        for (String c : tableCatalog.getColleges()) {
+            if (tableCatalog.hasGradesTable(c, dept)) {
+                List<Achiever> ranked = board.apply(boardsOf(c, dept.toLowerCase()));
+                merged.addAll(ranked.subList(0, Math.min(limit, ranked.size())));
+            }
+        }
+        merged.sort(RANKING);
+        return merged.subList(0, Math.min(limit, merged.size()));
+    }
+
+    /**
+     * Load the boards of every department after startup, so the first reads find them ready.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        for (String college : tableCatalog.getColleges()) {
+            for (String dept : tableCatalog.getResultDepartments(college)) {
+                requestLoad(college.toLowerCase(), dept.toLowerCase());
+            }
+        }
+        loader.execute(() -> log.info("🏆 Top achiever boards loaded for {} departments", boards.size()));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        loader.shutdownNow();
+    }
+
+    /**
+     * Boards of a department as loaded so far. A department that isn't loaded reads as empty
+     * and is queued for the loader, so a request never waits on a scan of the grades table.
+     */
+    private DepartmentBoards boardsOf(String college, String dept) {
+        DepartmentBoards cached = boards.get(college + "/" + dept);
+        if (cached != null) {
+            return cached;
+        }
+        requestLoad(college, dept);
+        return DepartmentBoards.EMPTY;
+    }
+
+    private void requestLoad(String college, String dept) {
+        String key = college + "/" + dept;
+        if (!loading.add(key)) {
+            return;
+        }
+        loader.execute(() -> {
+            try {
+                if (!boards.containsKey(key)) {
+                    refresh(college, dept);
+                }
+            } catch (Exception e) {
+                log.warn("⚠️ Could not rank {} {}: {}", college, dept, e.getMessage());
+            } finally {
+                loading.remove(key);
+            }
+        });
+    }
+
+    /**
+     * ✅ Offer the SGPAs of a semester just written, and the new CGPAs of its students, into the
+     * department's boards. Falls back to {@link #refresh} when the department isn't loaded yet or
+     * a student on a full board dropped.
+     */
+    public void update(String college, String dept, String semester) {
+        String key = college.toLowerCase() + "/" + dept.toLowerCase();
+        String gradesTableName = college.toLowerCase() + "_grades_" + dept.toLowerCase();
+        String totalsTableName = college.toLowerCase() + "_sem_totals_" + dept.toLowerCase();
+        String semesterKey = semester.replace("-", "_");
+        if (!Arrays.asList(SEMESTERS).contains(semesterKey)) {
+            throw new IllegalArgumentException("Unknown semester: " + semester);
+        }
+
+        synchronized (locks.computeIfAbsent(key, k -> new Object())) {
+            DepartmentBoards current = boards.get(key);
+            if (current == null || !tableCatalog.tableExists(gradesTableName) || !tableCatalog.tableExists(totalsTableName)) {
+                refresh(college, dept);
+                return;
+            }
+
+            // Students on the current boards are read too, so one who left the semester is seen to drop
+            Set<String> ranked = new TreeSet<>();
+            current.sgpa.getOrDefault(semesterKey, List.of()).forEach(a -> ranked.add(a.getHtno()));
+            current.cgpa.forEach(a -> ranked.add(a.getHtno()));
+            List<Object> args = new ArrayList<>();
+            args.add(semesterKey);
+            args.addAll(ranked);
+
+            JdbcTemplate jdbc = dynamicDbService.getJdbcTemplateForCollege(college);
+            String studentsTableName = college.toLowerCase() + "_students";
+            boolean withNames = tableCatalog.tableExists(studentsTableName);
+            String sql = "SELECT g.htno, g.sem_" + semesterKey + " AS sgpa, g.cgpa" +
+                    (withNames ? ", TRIM(CONCAT(COALESCE(s.fname, ''), ' ', COALESCE(s.lname, ''))) AS name" : ", NULL AS name") +
+                    " FROM " + dynamicDbService.sanitizeTableName(gradesTableName) + " g" +
+                    (withNames ? " LEFT JOIN " + dynamicDbService.sanitizeTableName(studentsTableName) + " s ON s.htno = g.htno" : "") +
+                    " WHERE g.htno IN (SELECT t.htno FROM " + dynamicDbService.sanitizeTableName(totalsTableName) +
+                    " t WHERE t.semester = ?)" +
+                    (ranked.isEmpty() ? "" : " OR g.htno IN (" + String.join(", ", Collections.nCopies(ranked.size(), "?")) + ")");
+
+            // htno -> new score, or null when the student no longer has one
+            Map<String, Achiever> sgpaUpdates = new HashMap<>();
+            Map<String, Achiever> cgpaUpdates = new HashMap<>();
+            jdbc.query(sql, rs -> {
+                String htno = rs.getString("htno");
+                String name = rs.getString("name");
+                double sgpa = rs.getDouble("sgpa");
+                sgpaUpdates.put(htno, rs.wasNull() ? null : new Achiever(htno, name, college, dept, sgpa));
+                double cgpa = rs.getDouble("cgpa");
+                cgpaUpdates.put(htno, rs.wasNull() ? null : new Achiever(htno, name, college, dept, cgpa));
+            }, args.toArray());
+
+            List<Achiever> sgpaBoard = merge(current.sgpa.getOrDefault(semesterKey, List.of()), sgpaUpdates);
+            List<Achiever> cgpaBoard = merge(current.cgpa, cgpaUpdates);
+            if (sgpaBoard == null || cgpaBoard == null) {
+                log.debug("A ranked student of {} {} dropped, rebuilding its boards", college, dept);
+                refresh(college, dept);
+                return;
+            }
+            Map<String, List<Achiever>> sgpa = new HashMap<>(current.sgpa);
+            sgpa.put(semesterKey, sgpaBoard);
+            boards.put(key, new DepartmentBoards(sgpa, cgpaBoard));
+        }
+    }
+
+    /**
+     * The board with the updated students offered into it, or null when it has to be rebuilt:
+     * a full board that loses or lowers one of its students may have to promote someone it never kept.
+     */
+    private List<Achiever> merge(List<Achiever> board, Map<String, Achiever> updates) {
+        PriorityQueue<Achiever> heap = new PriorityQueue<>(RANKING.reversed());
+        for (Achiever ranked : board) {
+            if (!updates.containsKey(ranked.getHtno())) {
+                heap.add(ranked);
+                continue;
+            }
+            Achiever updated = updates.get(ranked.getHtno());
+            if (board.size() >= topK && (updated == null || RANKING.compare(updated, ranked) > 0)) {
+                return null;
+            }
+        }
+        for (Achiever updated : updates.values()) {
+            if (updated != null) {
+                offer(heap, updated);
+            }
+        }
+        return sorted(heap);
+    }
+
+    /**
+     * ✅ Rebuild the boards of a department from its grades table in one pass.
+     */
+    public DepartmentBoards refresh(String college, String dept) {
+        String key = college.toLowerCase() + "/" + dept.toLowerCase();
+        synchronized (locks.computeIfAbsent(key, k -> new Object())) {
+            return rebuild(college, dept, key);
+        }
+    }
+
+    private DepartmentBoards rebuild(String college, String dept, String key) {
+        String gradesTableName = college.toLowerCase() + "_grades_" + dept.toLowerCase();
+        if (!tableCatalog.tableExists(gradesTableName)) {
+            boards.put(key, DepartmentBoards.EMPTY);
+            return DepartmentBoards.EMPTY;
+        }
+
+        JdbcTemplate jdbc = dynamicDbService.getJdbcTemplateForCollege(college);
+        String studentsTableName = college.toLowerCase() + "_students";
+        boolean withNames = tableCatalog.tableExists(studentsTableName);
+        String sql = "SELECT g.htno, g." + String.join(", g.", semesterColumns()) + ", g.cgpa" +
+                (withNames ? ", TRIM(CONCAT(COALESCE(s.fname, ''), ' ', COALESCE(s.lname, ''))) AS name" : ", NULL AS name") +
+                " FROM " + dynamicDbService.sanitizeTableName(gradesTableName) + " g" +
+                (withNames ? " LEFT JOIN " + dynamicDbService.sanitizeTableName(studentsTableName) + " s ON s.htno = g.htno" : "");
+
+        long start = System.currentTimeMillis();
+        List<PriorityQueue<Achiever>> semesterHeaps = new ArrayList<>();
+        for (int i = 0; i < SEMESTERS.length; i++) {
+            semesterHeaps.add(new PriorityQueue<>(RANKING.reversed()));
+        }
+        PriorityQueue<Achiever> cgpaHeap = new PriorityQueue<>(RANKING.reversed());
+
+        jdbc.query(sql, rs -> {
+            String htno = rs.getString("htno");
+            String name = rs.getString("name");
+            for (int i = 0; i < SEMESTERS.length; i++) {
+                double sgpa = rs.getDouble(i + 2);
+                if (!rs.wasNull()) {
+                    offer(semesterHeaps.get(i), new Achiever(htno, name, college, dept, sgpa));
+                }
+            }
+            double cgpa = rs.getDouble("cgpa");
+            if (!rs.wasNull()) {
+                offer(cgpaHeap, new Achiever(htno, name, college, dept, cgpa));
+            }
+        });
+
+        Map<String, List<Achiever>> sgpa = new HashMap<>();
+        for (int i = 0; i < SEMESTERS.length; i++) {
+            sgpa.put(SEMESTERS[i], sorted(semesterHeaps.get(i)));
+        }
+        DepartmentBoards refreshed = new DepartmentBoards(sgpa, sorted(cgpaHeap));
+        boards.put(key, refreshed);
+        log.debug("Ranked {} {} in {} ms", college, dept, System.currentTimeMillis() - start);
+        return refreshed;
+    }
+
+    /**
+     * Keep the K best: the heap's head is the weakest of them, replaced when a better one comes along.
+     */
+    private void offer(PriorityQueue<Achiever> heap, Achiever achiever) {
+        if (heap.size() < topK) {
+            heap.add(achiever);
+        } else if (RANKING.compare(achiever, heap.peek()) < 0) {
+            heap.poll();
+            heap.add(achiever);
+        }
+    }
+
+    private static List<Achiever> sorted(PriorityQueue<Achiever> heap) {
+        List<Achiever> ranked = new ArrayList<>(heap);
+        ranked.sort(RANKING);
+        return List.copyOf(ranked);
+    }
+
+    private static List<String> semesterColumns() {
+        List<String> columns = new ArrayList<>();
+        for (String semester : SEMESTERS) {
+            columns.add("sem_" + semester);
+        }
+        return columns;
+    }
+
+    /**
+     * Sorted top-K lists of one department.
+     */
+    @AllArgsConstructor
+    public static final class DepartmentBoards {
+        private static final DepartmentBoards EMPTY = new DepartmentBoards(Map.of(), List.of());
+
+        private final Map<String, List<Achiever>> sgpa;
+        private final List<Achiever> cgpa;
+    }
+
+    /**
+     * One student on a board, with the SGPA or CGPA it is ranked by.
+     */
+    @Getter
+    @AllArgsConstructor
+    public static final class Achiever {
+        private final String htno;
+        private final String name;
+        private final String college;
+        private final String department;
+        private final double score;
+    }
+}
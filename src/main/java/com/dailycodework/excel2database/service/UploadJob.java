@@ -0,0 +1,111 @@
+package com.dailycodework.excel2database.service;
+
+import com.dailycodework.excel2database.domain.UploadStats;
+import lombok.Getter;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ✅ Progress of one results upload, updated by {@link ResultUploadPipeline} and read by the status endpoint.
+ */
+@Getter
+public class UploadJob {
+
+    public enum Stage { QUEUED, PARSING, WRITING, SGPA, DONE, FAILED }
+
+    private final String id;
+    private final String description;
+    private final long createdAt = System.currentTimeMillis();
+
+    private final AtomicLong rowsParsed = new AtomicLong();
+    private final AtomicLong rowsWritten = new AtomicLong();
+    private volatile Stage stage = Stage.QUEUED;
+    private volatile boolean parsingFinished;
+    private volatile long startedAt;
+    private volatile long finishedAt;
+    private volatile String message;
+    private volatile String error;
+    private volatile UploadStats stats;
+
+    public UploadJob(String id, String description) {
+        this.id = id;
+        this.description = description;
+    }
+
+    void start() {
+        startedAt = System.currentTimeMillis();
+        stage = Stage.PARSING;
+    }
+
+    void rowParsed() {
+        rowsParsed.incrementAndGet();
+    }
+
+    void parsingFinished() {
+        parsingFinished = true;
+        if (stage == Stage.PARSING) {
+            stage = Stage.WRITING;
+        }
+    }
+
+    void rowsWritten(long rows) {
+        rowsWritten.addAndGet(rows);
+    }
+
+    void storingSgpa() {
+        stage = Stage.SGPA;
+    }
+
+    public void succeed(UploadStats stats, String message) {
+        this.stats = stats;
+        this.message = message;
+        finishedAt = System.currentTimeMillis();
+        stage = Stage.DONE;
+    }
+
+    public void fail(String error) {
+        this.error = error;
+        finishedAt = System.currentTimeMillis();
+        stage = Stage.FAILED;
+    }
+
+    public boolean isFinished() {
+        return stage == Stage.DONE || stage == Stage.FAILED;
+    }
+
+    /**
+     * ✅ Snapshot for the status endpoint, with throughput and an ETA once the row count is known.
+     */
+    public Map<String, Object> toStatus() {
+        long parsed = rowsParsed.get();
+        long written = rowsWritten.get();
+        long end = finishedAt > 0 ? finishedAt : System.currentTimeMillis();
+        long elapsed = startedAt > 0 ? end - startedAt : 0;
+        long rowsPerSecond = elapsed > 0 ? written * 1000 / elapsed : 0;
+
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("jobId", id);
+        status.put("description", description);
+        status.put("stage", stage.name());
+        status.put("rowsParsed", parsed);
+        status.put("rowsWritten", written);
+        status.put("rowsPerSecond", rowsPerSecond);
+        status.put("elapsedMillis", elapsed);
+        // The total is only known once the whole sheet has been read
+        Long etaSeconds = null;
+        if (isFinished()) {
+            etaSeconds = 0L;
+        } else if (parsingFinished && rowsPerSecond > 0) {
+            etaSeconds = Math.max(0, parsed - written) / rowsPerSecond;
+        }
+        status.put("etaSeconds", etaSeconds);
+        status.put("message", message);
+        status.put("error", error);
+        if (stats != null) {
+            status.put("mode", stats.getMode());
+        }
+        return status;
+    }
+}
@@ -0,0 +1,126 @@
+package com.dailycodework.excel2database.service;
+
+import com.dailycodework.excel2database.domain.UploadStats;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * ✅ Runs results uploads as background jobs.
+ *
+ * The upload is saved to a temporary file and queued on a bounded worker pool, and the
+ * request returns a job id straight away. The browser then polls {@link #getJob} for
+ * progress instead of holding a request open for the whole upload.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class UploadJobService {
+
+    private final ResultUploadPipeline resultUploadPipeline;
+
+    @Value("${app.upload.jobs.max-concurrent:2}")
+    private int maxConcurrent;
+
+    @Value("${app.upload.jobs.queue-capacity:10}")
+    private int queueCapacity;
+
+    @Value("${app.upload.jobs.retention-ms:3600000}")
+    private long retentionMs;
+
+    private final Map<String, UploadJob> jobs = new ConcurrentHashMap<>();
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger count = new AtomicInteger();
+        executor = new ThreadPoolExecutor(maxConcurrent, maxConcurrent, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), r -> {
+                    Thread thread = new Thread(r, "upload-job-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * ✅ Queue an upload. Returns the job; throws RejectedExecutionException when too many uploads are waiting.
+     */
+    public UploadJob submit(MultipartFile file, String dept, String semester, String college, String type) throws IOException {
+        String description = (type.equalsIgnoreCase("regular") ? "Results" : "Supplementary results")
+                + " for " + college + " " + dept + " - " + semester.replace("_", "-");
+        UploadJob job = new UploadJob(UUID.randomUUID().toString(), description);
+
+        // The multipart file is deleted when the request ends, so keep a copy for the job
+        Path tempFile = Files.createTempFile("upload-job-", ".xlsx");
+        try (InputStream in = file.getInputStream()) {
+            Files.copy(in, tempFile, StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        jobs.put(job.getId(), job);
+        try {
+            executor.execute(() -> run(job, tempFile, dept, semester, college, type));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.getId());
+            Files.deleteIfExists(tempFile);
+            throw e;
+        }
+        log.info("Queued upload job {}: {}", job.getId(), description);
+        return job;
+    }
+
+    private void run(UploadJob job, Path tempFile, String dept, String semester, String college, String type) {
+        try {
+            UploadStats stats = resultUploadPipeline.upload(tempFile.toFile(), dept, semester, college, job);
+            String displaySemester = semester.replace("_", "-");
+            String message = (type.equalsIgnoreCase("regular") ?
+                    "✅ Uploaded Results for " + dept + " - " + displaySemester :
+                    "✅ Updated Supplementary Results for " + dept + " - " + displaySemester) + " (" + stats + ")";
+            job.succeed(stats, message);
+        } catch (Exception e) {
+            log.error("Upload job {} failed: {}", job.getId(), e.getMessage(), e);
+            job.fail("❌ Upload Failed: " + e.getMessage());
+        } finally {
+            try {
+                Files.deleteIfExists(tempFile);
+            } catch (IOException e) {
+                log.warn("Could not delete upload file {}: {}", tempFile, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * ✅ Look up a job. Returns null for unknown or expired ids.
+     */
+    public UploadJob getJob(String jobId) {
+        return jobs.get(jobId);
+    }
+
+    /**
+     * Forget finished jobs once nobody is likely to poll them any more.
+     */
+    @Scheduled(fixedDelayString = "${app.upload.jobs.cleanup-interval-ms:60000}")
+    public void removeExpiredJobs() {
+        long cutoff = System.currentTimeMillis() - retentionMs;
+        jobs.values().removeIf(job -> job.isFinished() && job.getFinishedAt() < cutoff);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -1,17 +1,168 @@
-//package com.dailycodework.excel2database.util;
-//
-//public class GradeUtil {
-//    public static int getGradePoint(String grade) {
-//        return switch (grade.toUpperCase()) {
-//            case "O" -> 10;
-//            case "A+" -> 9;
-//            case "A" -> 8;
-//            case "B+" -> 7;
-//            case "B" -> 6;
-//            case "C" -> 5;
-//            case "F" -> 0;
-//            default -> 0;
-//        };
-//    }
-//}
-////
\ No newline at end of file
+package com.dailycodework.excel2database.util;
+
+import com.dailycodework.excel2database.domain.Subject;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.List;
+
+/**
+ * ✅ The one grade-to-point mapping used by uploads, SGPA/CGPA and search.
+ *
+ * Grades are parsed into a small byte code without trimming or upper-casing the string,
+ * and points are looked up in a primitive array, so grading a row allocates nothing.
+ * The SQL CASE expression and the grade_points table are generated from the same arrays.
+ */
+public final class GradeUtil {
+
+    // Code of a grade that is not recognised; such subjects don't count towards SGPA/CGPA
+    public static final byte UNKNOWN = -1;
+
+    private static final String[] GRADES = {"A+", "A", "B", "C", "D", "E", "F", "MP", "AB"};
+
+    // Points per grade code; malpractice (MP) and absent (AB) count as a fail
+    private static final double[] POINTS = {10.0, 9.0, 8.0, 7.0, 6.0, 5.0, 0.0, 0.0, 0.0};
+
+    private GradeUtil() {
+    }
+
+    /**
+     * ✅ Grade code of a grade string, ignoring case and surrounding spaces. {@link #UNKNOWN} if not recognised.
+     * Only spaces are trimmed, like MySQL's TRIM, so the SQL path grades the same rows.
+     */
+    public static byte parse(CharSequence grade) {
+        if (grade == null) {
+            return UNKNOWN;
+        }
+        int start = 0;
+        int end = grade.length();
+        while (start < end && grade.charAt(start) == ' ') start++;
+        while (end > start && grade.charAt(end - 1) == ' ') end--;
+
+        if (end - start == 1) {
+            return switch (Character.toUpperCase(grade.charAt(start))) {
+                case 'A' -> 1;
+                case 'B' -> 2;
+                case 'C' -> 3;
+                case 'D' -> 4;
+                case 'E' -> 5;
+                case 'F' -> 6;
+                default -> UNKNOWN;
+            };
+        }
+        if (end - start == 2) {
+            char first = Character.toUpperCase(grade.charAt(start));
+            char second = Character.toUpperCase(grade.charAt(start + 1));
+            if (first == 'A' && second == '+') return 0;
+            if (first == 'M' && second == 'P') return 7;
+            if (first == 'A' && second == 'B') return 8;
+        }
+        return UNKNOWN;
+    }
+
+    /**
+     * ✅ Points of a grade code, or -1 for {@link #UNKNOWN}.
+     */
+    public static double points(byte code) {
+        return code < 0 ? -1 : POINTS[code];
+    }
+
+    /**
+     * ✅ Points of a grade string, or -1 if it is not recognised.
+     */
+    public static double gradePoint(String grade) {
+        return points(parse(grade));
+    }
+
+    /**
+     * ✅ Whether a subject with this grade code and credit counts towards SGPA/CGPA.
+     */
+    public static boolean counts(byte code, double credit) {
+        return code >= 0 && credit > 0;
+    }
+
+    /**
+     * ✅ Add one subject to a {points x credits, credits} total.
+     */
+    public static void accumulate(double[] total, byte code, double credit) {
+        if (counts(code, credit)) {
+            total[0] += POINTS[code] * credit;
+            total[1] += credit;
+        }
+    }
+
+    /**
+     * ✅ Add one subject to a {points x credits, credits} total.
+     */
+    public static void accumulate(double[] total, Subject subject) {
+        Double credit = subject.getCredit();
+        if (credit != null) {
+            accumulate(total, parse(subject.getGrade()), credit);
+        }
+    }
+
+    /**
+     * ✅ SGPA (or CGPA) of a list of subjects, in one pass without copying them.
+     */
+    public static double gpa(List<Subject> subjects) {
+        double points = 0;
+        double creditSum = 0;
+        for (int i = 0, n = subjects.size(); i < n; i++) {
+            Subject subject = subjects.get(i);
+            Double credit = subject.getCredit();
+            if (credit == null) {
+                continue;
+            }
+            double c = credit;
+            byte code = parse(subject.getGrade());
+            if (code >= 0 && c > 0) {
+                points += POINTS[code] * c;
+                creditSum += c;
+            }
+        }
+        return gpa(points, creditSum);
+    }
+
+    /**
+     * ✅ Grade point average of a {points x credits, credits} total, rounded half-up to 2 places; 0 without credits.
+     */
+    public static double gpa(double[] total) {
+        return gpa(total[0], total[1]);
+    }
+
+    public static double gpa(double points, double credits) {
+        return credits > 0 ? round2(points / credits) : 0.0;
+    }
+
+    /**
+     * Round half-up to 2 decimal places. Called once per student, not per subject.
+     */
+    public static double round2(double value) {
+        return BigDecimal.valueOf(value).setScale(2, RoundingMode.HALF_UP).doubleValue();
+    }
+
+    /**
+     * ✅ Number of recognised grades; codes run from 0 to count - 1.
+     */
+    public static int gradeCount() {
+        return GRADES.length;
+    }
+
+    /**
+     * ✅ Grade string of a code, e.g. "A+".
+     */
+    public static String label(byte code) {
+        return GRADES[code];
+    }
+
+    /**
+     * ✅ SQL expression giving the points of a grade column with the same mapping, -1 when not recognised.
+     */
+    public static String pointsSql(String column) {
+        StringBuilder sql = new StringBuilder("(CASE UPPER(TRIM(").append(column).append("))");
+        for (int code = 0; code < GRADES.length; code++) {
+            sql.append(" WHEN '").append(GRADES[code]).append("' THEN ").append(POINTS[code]);
+        }
+        return sql.append(" ELSE -1 END)").toString();
+    }
+}
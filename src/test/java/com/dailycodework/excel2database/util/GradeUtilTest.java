@@ -0,0 +1,133 @@
+package com.dailycodework.excel2database.util;
+
+import com.dailycodework.excel2database.domain.Subject;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GradeUtilTest {
+
+    @Test
+    void parsesEveryGradeIgnoringCaseAndSurroundingSpaces() {
+        assertEquals(10.0, GradeUtil.gradePoint("A+"));
+        assertEquals(10.0, GradeUtil.gradePoint(" a+ "));
+        assertEquals(9.0, GradeUtil.gradePoint("A"));
+        assertEquals(8.0, GradeUtil.gradePoint("b"));
+        assertEquals(7.0, GradeUtil.gradePoint("C"));
+        assertEquals(6.0, GradeUtil.gradePoint("D"));
+        assertEquals(5.0, GradeUtil.gradePoint("  E"));
+        assertEquals(0.0, GradeUtil.gradePoint("F"));
+        assertEquals(0.0, GradeUtil.gradePoint("mp"));
+        assertEquals(0.0, GradeUtil.gradePoint("AB "));
+    }
+
+    @Test
+    void rejectsUnknownGrades() {
+        assertEquals(GradeUtil.UNKNOWN, GradeUtil.parse(null));
+        assertEquals(GradeUtil.UNKNOWN, GradeUtil.parse(""));
+        assertEquals(GradeUtil.UNKNOWN, GradeUtil.parse("   "));
+        assertEquals(GradeUtil.UNKNOWN, GradeUtil.parse("A++"));
+        assertEquals(GradeUtil.UNKNOWN, GradeUtil.parse("G"));
+        assertEquals(GradeUtil.UNKNOWN, GradeUtil.parse("A -"));
+        assertEquals(-1.0, GradeUtil.gradePoint("PASS"));
+    }
+
+    @Test
+    void labelsRoundTripThroughParse() {
+        for (byte code = 0; code < GradeUtil.gradeCount(); code++) {
+            assertEquals(code, GradeUtil.parse(GradeUtil.label(code)));
+        }
+    }
+
+    @Test
+    void failingGradesScoreZeroButKeepTheirCredits() {
+        List<Subject> subjects = List.of(
+                subject("A+", 4.0),
+                subject("AB", 3.0),
+                subject("MP", 2.0),
+                subject("F", 1.0));
+        // 40 points over 10 credits: the failed subjects still weigh down the average
+        assertEquals(4.0, GradeUtil.gpa(subjects));
+
+        double[] total = new double[2];
+        subjects.forEach(subject -> GradeUtil.accumulate(total, subject));
+        assertEquals(40.0, total[0]);
+        assertEquals(10.0, total[1]);
+        assertEquals(4.0, GradeUtil.gpa(total));
+    }
+
+    @Test
+    void leavesOutUnknownGradesAndSubjectsWithoutCredit() {
+        List<Subject> subjects = List.of(
+                subject("A", 3.0),
+                subject("XYZ", 4.0),
+                subject("A+", 0.0),
+                subject("B", null));
+        assertEquals(9.0, GradeUtil.gpa(subjects));
+        assertEquals(0.0, GradeUtil.gpa(List.of(subject("A", 0.0))));
+    }
+
+    @Test
+    void roundsHalfUp() {
+        assertEquals(8.67, GradeUtil.gpa(26.0, 3.0));
+        assertEquals(7.13, GradeUtil.round2(7.125));
+        assertEquals(0.0, GradeUtil.gpa(0.0, 0.0));
+    }
+
+    /**
+     * The SQL engine joins results to grade_points ON gp.grade = UPPER(TRIM(r.grade)) and keeps rows
+     * where gp.points IS NOT NULL AND r.credit > 0. The table is seeded from label/points, so this
+     * replays that join and compares it with the Java kernel.
+     */
+    @Test
+    void agreesWithGradePointsJoinAndValidSubjectFilter() {
+        Map<String, Double> gradePoints = new HashMap<>();
+        for (byte code = 0; code < GradeUtil.gradeCount(); code++) {
+            gradePoints.put(GradeUtil.label(code), GradeUtil.points(code));
+        }
+
+        String[] grades = {"A+", "a", " B ", "c  ", "D", "e", "F", "MP", "ab", "A\t", "\tB", "O", "", "S+"};
+        double[] credits = {3.0, 0.0, -1.0};
+        for (String grade : grades) {
+            Double sqlPoints = gradePoints.get(mysqlTrim(grade).toUpperCase(Locale.ROOT));
+            byte code = GradeUtil.parse(grade);
+            assertEquals(sqlPoints == null ? -1.0 : sqlPoints, GradeUtil.points(code), "points of '" + grade + "'");
+            for (double credit : credits) {
+                boolean sqlCounts = sqlPoints != null && credit > 0;
+                assertEquals(sqlCounts, GradeUtil.counts(code, credit), "counts '" + grade + "' with credit " + credit);
+            }
+        }
+    }
+
+    @Test
+    void pointsSqlListsEveryGrade() {
+        String sql = GradeUtil.pointsSql("grade");
+        assertTrue(sql.startsWith("(CASE UPPER(TRIM(grade))"));
+        for (byte code = 0; code < GradeUtil.gradeCount(); code++) {
+            assertTrue(sql.contains("WHEN '" + GradeUtil.label(code) + "' THEN " + GradeUtil.points(code)),
+                    "missing " + GradeUtil.label(code));
+        }
+        assertTrue(sql.endsWith("ELSE -1 END)"));
+    }
+
+    private static String mysqlTrim(String value) {
+        int start = 0;
+        int end = value.length();
+        while (start < end && value.charAt(start) == ' ') start++;
+        while (end > start && value.charAt(end - 1) == ' ') end--;
+        return value.substring(start, end);
+    }
+
+    private static Subject subject(String grade, Double credit) {
+        Subject subject = new Subject();
+        subject.setHtno("20A91A0501");
+        subject.setGrade(grade);
+        subject.setCredit(credit);
+        return subject;
+    }
+}